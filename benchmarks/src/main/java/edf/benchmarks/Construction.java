@@ -0,0 +1,73 @@
+package edf.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edf.EDF;
+
+/**
+ * Temps de new EDF() : lecture des fichiers de l'instance et construction du modèle.
+ * La taille de l'instance est le nombre de jours de l'horizon (au plus EDF.NB_JOURS).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Construction {
+	
+	/** 
+	 * L'horizon complet de l'instance : le modèle planifie les nbJours premiers jours comme
+	 * une fenêtre de l'horizon glissant, les besoins restants pouvant être reportés au-delà
+	 */
+	private static final int HORIZON = 90;
+	
+	@Param({"28", "56", "90"})
+	public int nbJours;
+	
+	/** L'instance fournie (data/) ou une instance synthétique de la même taille (voir Instances) */
+	@Param({"fournie", "synthetique"})
+	public String instance;
+	
+	private File repertoire;
+	
+	@Setup(Level.Trial)
+	public void chargerInstance() throws Exception {
+		repertoire = Instances.charger(instance, HORIZON);
+		// À nbJours = HORIZON, la fenêtre est la dernière et tous les besoins de l'instance fournie
+		// ne tiennent pas dans ses semaines : seule la construction est mesurée
+		EDF.setVerificationCapacites(false);
+	}
+	
+	@TearDown(Level.Trial)
+	public void restaurerInstance() throws Exception {
+		Instances.restaurer(repertoire);
+		EDF.setVerificationCapacites(true);
+	}
+	
+	@Benchmark
+	public EDF construire() throws Exception {
+		return new EDF(0, nbJours, nbJours / 2, HORIZON, null);
+	}
+	
+	@Benchmark
+	public EDF construireEquipesSeulement() throws Exception {
+		return new EDF(0, nbJours, nbJours / 2, HORIZON, null, true);
+	}
+
+}
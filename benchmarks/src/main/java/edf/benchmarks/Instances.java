@@ -0,0 +1,51 @@
+package edf.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import edf.EDF;
+import edf.GenerateurInstance;
+
+/**
+ * Les instances des benchmarks : l'instance fournie (data/), ou une instance synthétique de la même taille
+ * (14 équipes, 40 formateurs, 17 salles, voir GenerateurInstance) générée dans un répertoire temporaire.
+ */
+final class Instances {
+	
+	static final String FOURNIE = "fournie";
+	
+	static final String SYNTHETIQUE = "synthetique";
+	
+	private Instances() {
+	}
+	
+	/**
+	 * Charge l'instance (voir EDF.chargerInstance())
+	 * @param nbJours le nombre de jours de l'instance synthétique
+	 * @return le répertoire de l'instance synthétique, null pour l'instance fournie
+	 */
+	static File charger(String instance, int nbJours) throws Exception {
+		if(FOURNIE.equals(instance)) {
+			return null;
+		}
+		File repertoire = Files.createTempDirectory("edf-benchmark").toFile();
+		new GenerateurInstance(14, 40, 17, nbJours, 0.1, 0.2, 0).ecrire(repertoire.getPath());
+		EDF.chargerInstance(repertoire.getPath());
+		return repertoire;
+	}
+	
+	/**
+	 * Supprime l'instance synthétique et revient à l'instance fournie
+	 */
+	static void restaurer(File repertoire) throws Exception {
+		if(repertoire == null) {
+			return;
+		}
+		for (File fichier : repertoire.listFiles()) {
+			fichier.delete();
+		}
+		repertoire.delete();
+		EDF.chargerInstance("./data/");
+	}
+
+}
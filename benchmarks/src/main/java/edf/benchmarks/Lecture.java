@@ -0,0 +1,79 @@
+package edf.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edf.EDF;
+import edf.GenerateurInstance;
+
+/**
+ * Temps de lecture des fichiers de disponibilités d'une instance générée de plusieurs années
+ * (200 équipes, 100 formateurs), pour une fenêtre d'une semaine en fin d'horizon :
+ * les lignes des équipes sont lues presque entièrement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Lecture {
+	
+	@Param({"364", "1820", "3640"})
+	public int nbJours;
+	
+	private File repertoire;
+	
+	private EDF edf;
+	
+	@Setup(Level.Trial)
+	public void generer() throws Exception {
+		repertoire = Files.createTempDirectory("edf-lecture").toFile();
+		new GenerateurInstance(200, 100, 12, nbJours, 0.1, 0.2, 0).ecrire(repertoire.getPath());
+		EDF.chargerInstance(repertoire.getPath());
+		// Tous les besoins ne tiennent pas dans une semaine : seule la lecture est mesurée
+		EDF.setVerificationCapacites(false);
+		edf = new EDF(nbJours - 7, 7, 7, 7, null, true);
+	}
+	
+	@TearDown(Level.Trial)
+	public void supprimer() throws Exception {
+		for (File fichier : repertoire.listFiles()) {
+			fichier.delete();
+		}
+		repertoire.delete();
+		EDF.chargerInstance("./data/");
+		EDF.setVerificationCapacites(true);
+	}
+	
+	@Benchmark
+	public void lireDisponibilitesEquipes() throws Exception {
+		edf.lireDisponibilitesEquipes();
+	}
+	
+	@Benchmark
+	public void lireDisponibilitesFormateurs() throws Exception {
+		edf.lireDsiponibilitesFormateurs();
+	}
+	
+	@Benchmark
+	public void chargerInstance() throws Exception {
+		EDF.chargerInstance(repertoire.getPath());
+	}
+
+}
@@ -0,0 +1,78 @@
+package edf.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.chocosolver.solver.exception.ContradictionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edf.EDF;
+
+/**
+ * Temps de la propagation initiale (à la racine) d'un modèle fraîchement construit.
+ * Le modèle est reconstruit avant chaque appel, hors de la mesure.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class Propagation {
+	
+	/** L'horizon complet de l'instance, dont le modèle ne planifie que les nbJours premiers jours */
+	private static final int HORIZON = 90;
+	
+	@Param({"28", "56", "90"})
+	public int nbJours;
+	
+	private EDF edf;
+	
+	/** L'instance fournie (data/) ou une instance synthétique de la même taille (voir Instances) */
+	@Param({"fournie", "synthetique"})
+	public String instance;
+	
+	private File repertoire;
+	
+	@Setup(Level.Trial)
+	public void chargerInstance() throws Exception {
+		repertoire = Instances.charger(instance, HORIZON);
+		// À nbJours = HORIZON, la fenêtre est la dernière et tous les besoins de l'instance fournie
+		// ne tiennent pas dans ses semaines : la propagation mesurée est celle qui le découvre
+		EDF.setVerificationCapacites(false);
+	}
+	
+	@TearDown(Level.Trial)
+	public void restaurerInstance() throws Exception {
+		Instances.restaurer(repertoire);
+		EDF.setVerificationCapacites(true);
+	}
+	
+	@Setup(Level.Invocation)
+	public void construire() throws Exception {
+		edf = new EDF(0, nbJours, nbJours / 2, HORIZON, null);
+	}
+	
+	@Benchmark
+	public boolean propager() {
+		try {
+			edf.getSolver().propagate();
+			return true;
+		} catch (ContradictionException e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,82 @@
+package edf.benchmarks;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.chocosolver.solver.Solution;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import edf.EDF;
+import edf.Strategie;
+
+/**
+ * Temps de findSolution() pour chaque stratégie de recherche.
+ * La recherche est bornée en nombre de noeuds pour que la mesure reste comparable
+ * d'une version à l'autre, même quand aucune solution n'est trouvée.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class Recherche {
+	
+	/** 
+	 * L'horizon complet de l'instance : une fenêtre plus courte peut reporter une partie des besoins
+	 * au-delà de ses derniers jours, sinon elle est infaisable dès la racine
+	 */
+	private static final int HORIZON = 90;
+	
+	@Param({"ACTIVITE", "DOM_WDEG", "ORDRE_STATIQUE", "ALEATOIRE", "STRUCTUREE"})
+	public Strategie strategie;
+	
+	@Param({"28", "56"})
+	public int nbJours;
+	
+	@Param({"20000"})
+	public long nbNoeudsMax;
+	
+	private EDF edf;
+	
+	/** L'instance fournie (data/) ou une instance synthétique de la même taille (voir Instances) */
+	@Param({"fournie", "synthetique"})
+	public String instance;
+	
+	private File repertoire;
+	
+	@Setup(Level.Trial)
+	public void chargerInstance() throws Exception {
+		repertoire = Instances.charger(instance, HORIZON);
+	}
+	
+	@TearDown(Level.Trial)
+	public void restaurerInstance() throws Exception {
+		Instances.restaurer(repertoire);
+	}
+	
+	@Setup(Level.Invocation)
+	public void construire() throws Exception {
+		edf = new EDF(0, nbJours, nbJours / 2, HORIZON, null);
+		edf.configurerRecherche(strategie, 0);
+		edf.getSolver().limitNode(nbNoeudsMax);
+	}
+	
+	@Benchmark
+	public Solution chercher() {
+		return edf.getSolver().findSolution();
+	}
+
+}
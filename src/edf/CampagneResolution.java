@@ -0,0 +1,90 @@
+package edf;
+
+import java.util.Arrays;
+
+/**
+ * Campagne de comparaison des profils de résolution : pour chaque profil, la première solution
+ * d'une fenêtre de l'horizon est cherchée avec plusieurs graines, chacune avec un temps limite.
+ * Les temps de résolution sont très dispersés d'une graine à l'autre : la médiane, le 90e centile
+ * et le maximum du temps jusqu'à la première solution sont affichés pour chaque profil.
+ * Une recherche interrompue par le temps limite compte pour un temps infini.
+ */
+public class CampagneResolution {
+	
+	private int nbJours;
+	
+	private int horizon;
+	
+	private int tempsMax;
+	
+	private int nbGraines;
+	
+	private Strategie strategie;
+	
+	/**
+	 * @param nbJours la fenêtre résolue, au début de l'horizon : la moitié en est fixée, sauf si elle couvre tout l'horizon
+	 * @param horizon le nombre de jours de l'horizon complet
+	 * @param tempsMax le temps limite de chaque recherche, en secondes
+	 * @param nbGraines le nombre de graines de chaque profil
+	 */
+	public CampagneResolution(int nbJours, int horizon, int tempsMax, int nbGraines, Strategie strategie) {
+		this.nbJours = nbJours;
+		this.horizon = horizon;
+		this.tempsMax = tempsMax;
+		this.nbGraines = nbGraines;
+		this.strategie = strategie;
+	}
+	
+	public void go(ProfilResolution[] profils) throws Exception {
+		System.out.println("Stratégie "+strategie+", fenêtre de "+nbJours+" jours sur "+horizon+", "+nbGraines+" graines, "+tempsMax+" s par recherche");
+		// Une première recherche non mesurée, pour que le premier profil ne paie pas la compilation à la volée
+		EDF echauffement = fenetre();
+		echauffement.configurerRecherche(strategie, 0);
+		echauffement.getSolver().limitTime(tempsMax+"s");
+		echauffement.getSolver().solve();
+		
+		System.out.println("Profil;Resolues;Mediane (ms);P90 (ms);Max (ms);Echecs (mediane)");
+		for (ProfilResolution profil : profils) {
+			EDF.setProfilResolution(profil);
+			long[] temps = new long[nbGraines];
+			long[] echecs = new long[nbGraines];
+			int resolues = 0;
+			for (int graine = 0; graine < nbGraines; graine++) {
+				EDF edf = fenetre();
+				edf.configurerRecherche(strategie, graine);
+				edf.getSolver().limitTime(tempsMax+"s");
+				
+				long debut = System.currentTimeMillis();
+				if(edf.getSolver().solve()) {
+					temps[graine] = System.currentTimeMillis() - debut;
+					resolues++;
+				} else {
+					temps[graine] = Long.MAX_VALUE;
+				}
+				echecs[graine] = edf.getSolver().getMeasures().getFailCount();
+			}
+			Arrays.sort(temps);
+			Arrays.sort(echecs);
+			System.out.println(profil+";"+resolues+"/"+nbGraines+";"+afficher(centile(temps, 50))+";"+afficher(centile(temps, 90))
+					+";"+afficher(temps[nbGraines - 1])+";"+centile(echecs, 50));
+		}
+		EDF.setProfilResolution(ProfilResolution.STANDARD);
+	}
+	
+	private EDF fenetre() throws Exception {
+		return new EDF(0, nbJours, nbJours < horizon ? nbJours / 2 : nbJours, horizon, null);
+	}
+	
+	/**
+	 * Le centile c d'un tableau trié (méthode du rang le plus proche)
+	 */
+	private static long centile(long[] tries, int c) {
+		int rang = (int) Math.ceil(c / 100.0 * tries.length);
+		return tries[Math.max(0, rang - 1)];
+	}
+	
+	private String afficher(long temps) {
+		return temps == Long.MAX_VALUE ? ">"+(tempsMax * 1000) : String.valueOf(temps);
+	}
+
+}
@@ -0,0 +1,51 @@
+package edf;
+
+import java.util.HashMap;
+
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Choix de valeur pour les traces des formateurs qui équilibre leur charge :
+ * un formateur qui a travaillé moins de journées que la moyenne prend une session,
+ * les autres restent sans cours tant que c'est possible.
+ */
+public class ChargeFormateurs implements IntValueSelector {
+	
+	/** Le numéro du formateur de chaque variable de trace */
+	private HashMap<IntVar, Integer> formateurDeTrace;
+	
+	/** Les journées travaillées par chaque formateur */
+	private IntVar[] journees;
+	
+	private SessionDAbord session;
+	
+	public ChargeFormateurs(IntVar[][] formateurs, IntVar[] journees) {
+		this.formateurDeTrace = new HashMap<IntVar, Integer>();
+		for (int k = 0; k < formateurs.length; k++) {
+			for (int j = 0; j < formateurs[k].length; j++) {
+				formateurDeTrace.put(formateurs[k][j], k);
+			}
+		}
+		this.journees = journees;
+		this.session = new SessionDAbord();
+	}
+	
+	@Override
+	public int selectValue(IntVar var) {
+		Integer k = formateurDeTrace.get(var);
+		if(k == null || !var.contains(EDF.PAS_DE_COURS)) {
+			return session.selectValue(var);
+		}
+		
+		int total = 0;
+		for (IntVar journeesFormateur : journees) {
+			total += journeesFormateur.getLB();
+		}
+		if(journees[k].getLB() * journees.length <= total) {
+			return session.selectValue(var);
+		}
+		return EDF.PAS_DE_COURS;
+	}
+
+}
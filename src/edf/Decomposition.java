@@ -0,0 +1,416 @@
+package edf;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Résolution du planning en deux phases :
+ * 1. le planning des équipes est résolu seul, avec des capacités par trace (formateurs et salles disponibles)
+ * 2. les salles sont affectées trace par trace aux sessions planifiées, par couplage ;
+ *    les formateurs sont affectés jour par jour, par un flot qui respecte leur budget de journées et l'écart de charge.
+ * Quand la phase 2 échoue, une coupe (salles d'une trace) ou un no-good (sessions par jour que les formateurs
+ * ne peuvent pas couvrir) est renvoyé à la phase 1 qui est résolue à nouveau.
+ */
+public class Decomposition {
+	
+	/** Le nombre maximum d'allers-retours entre les deux phases */
+	private int nbIterationsMax;
+	
+	/** Les coupes accumulées, renvoyées par la phase 2 */
+	private ArrayList<Coupe> coupes;
+	
+	/** Les no-goods accumulés : les sessions de la trace la plus chargée de chaque jour (voir EDF.interdireSessionsJours()) */
+	private ArrayList<int[]> noGoods;
+	
+	/** Le planning des formateurs calculé par la phase 2 */
+	private int[][] planningFormateurs;
+	
+	/** Le planning des salles calculé par la phase 2 */
+	private int[][] planningSalles;
+	
+	public Decomposition(int nbIterationsMax) {
+		this.nbIterationsMax = nbIterationsMax;
+		this.coupes = new ArrayList<Coupe>();
+		this.noGoods = new ArrayList<int[]>();
+	}
+	
+	/**
+	 * @return true si un planning complet a été trouvé et écrit
+	 */
+	public boolean go() throws Exception {
+		for (int iteration = 1; iteration <= nbIterationsMax; iteration++) {
+			EDF edf = new EDF(true);
+			for (Coupe coupe : coupes) {
+				edf.ajouterCoupe(coupe.trace, coupe.formations, coupe.max);
+			}
+			for (int[] sessionsParJour : noGoods) {
+				edf.interdireSessionsJours(sessionsParJour);
+			}
+			edf.configurerRecherche(Strategie.ACTIVITE, 0);
+			
+			long debut = System.currentTimeMillis();
+			if(!edf.getSolver().solve()) {
+				System.out.println("Phase 1 (itération "+iteration+") : aucun planning des équipes");
+				return false;
+			}
+			System.out.println("Phase 1 (itération "+iteration+") : planning des équipes trouvé en "+(System.currentTimeMillis() - debut)+" ms");
+			
+			int nbCoupes = coupes.size() + noGoods.size();
+			debut = System.currentTimeMillis();
+			if(affecter(edf)) {
+				System.out.println("Phase 2 : formateurs et salles affectés en "+(System.currentTimeMillis() - debut)+" ms");
+				SortieSolution sortie = EDF.ouvrirSortie();
+				edf.ecrireSolution(sortie, EDF.NB_JOURS, planningFormateurs, planningSalles);
+				sortie.fermer();
+				return true;
+			}
+			System.out.println("Phase 2 : échec, "+(coupes.size() + noGoods.size() - nbCoupes)+" coupe(s) renvoyée(s) à la phase 1");
+			if(coupes.size() + noGoods.size() == nbCoupes) {
+				return false;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Phase 2 : affecte une salle puis un formateur à chaque session du planning des équipes
+	 * @return true si toutes les sessions ont été affectées dans le respect des contraintes RH
+	 */
+	private boolean affecter(EDF edf) {
+		IntVar[][] equipes = edf.getEquipes();
+		int[][] formationsSalles = edf.getFormationsSalles();
+		int nbTraces = equipes[0].length;
+		
+		planningSalles = new int[edf.getNbSalles()][nbTraces];
+		boolean affecte = true;
+		for (int j = 0; j < nbTraces; j++) {
+			int[] sessions = sessions(equipes, j);
+			
+			// Salles : couplage entre les sessions et les salles adaptées
+			int[] salleDeSession = new int[sessions.length];
+			int[] sessionDeSalle = new int[edf.getNbSalles()];
+			Arrays.fill(salleDeSession, -1);
+			Arrays.fill(sessionDeSalle, -1);
+			boolean couplage = true;
+			for (int s = 0; s < sessions.length && couplage; s++) {
+				boolean[] sessionsVues = new boolean[sessions.length];
+				boolean[] sallesVues = new boolean[edf.getNbSalles()];
+				if(!augmenter(s, sessions, formationsSalles, salleDeSession, sessionDeSalle, sessionsVues, sallesVues)) {
+					// Les sessions visitées forment un ensemble de Hall : trop de sessions pour leurs salles adaptées
+					coupes.add(coupeSalles(j, sessions, sessionsVues, formationsSalles));
+					couplage = false;
+				}
+			}
+			if(!couplage) {
+				affecte = false;
+				continue;
+			}
+			for (int s = 0; s < sessions.length; s++) {
+				planningSalles[salleDeSession[s]][j] = sessions[s];
+			}
+		}
+		
+		return affecte && affecterFormateurs(edf);
+	}
+	
+	/**
+	 * Les formateurs : les congés couvrent des jours entiers, un jour demande donc autant de formateurs disponibles
+	 * que de sessions dans sa trace la plus chargée, et chacun d'eux y travaille une journée.
+	 * Le choix des formateurs de chaque jour est un flot avec bornes inférieures : de chaque jour vers ses formateurs
+	 * disponibles, puis de chaque formateur vers le puits, entre les bornes de ses journées. Les journées de tous
+	 * les formateurs doivent tenir dans une même bande [min, min + NB_MAX_DIF_ENTRE_FORMS - 1] sous
+	 * NB_MAX_TRAVAIL_FORMATEUR : chaque bande possible est essayée.
+	 * Si aucune ne l'est, ces sessions par jour sont interdites à la phase 1 (no-good).
+	 * @return true si tous les formateurs ont été affectés
+	 */
+	private boolean affecterFormateurs(EDF edf) {
+		IntVar[][] equipes = edf.getEquipes();
+		boolean[][] conges = edf.getCongesFormateurs();
+		int[] dejaTravaillees = edf.getEtat().getJourneesTravaillees();
+		int nbJours = equipes[0].length / EDF.NB_TRACES_JOUR;
+		
+		int[] sessionsParJour = new int[nbJours];
+		boolean[][] disponibles = new boolean[nbJours][edf.getNbFormateurs()];
+		for (int d = 0; d < nbJours; d++) {
+			for (int t = 0; t < EDF.NB_TRACES_JOUR; t++) {
+				sessionsParJour[d] = Math.max(sessionsParJour[d], sessions(equipes, d * EDF.NB_TRACES_JOUR + t).length);
+			}
+			for (int k = 0; k < edf.getNbFormateurs(); k++) {
+				disponibles[d][k] = !conges[k][d * EDF.NB_TRACES_JOUR];
+			}
+		}
+		
+		int[][] joursFormateurs = null;
+		int min = 0;
+		int max = 0;
+		while(joursFormateurs == null && min <= EDF.NB_MAX_TRAVAIL_FORMATEUR) {
+			max = Math.min(min + EDF.NB_MAX_DIF_ENTRE_FORMS - 1, EDF.NB_MAX_TRAVAIL_FORMATEUR);
+			joursFormateurs = choisirFormateurs(sessionsParJour, disponibles, dejaTravaillees, min, max);
+			if(joursFormateurs == null) {
+				min++;
+			}
+		}
+		if(joursFormateurs == null) {
+			System.out.println("Phase 2 : les formateurs ne peuvent pas couvrir les sessions de chaque jour dans leur budget et l'écart de charge");
+			noGoods.add(sessionsParJour);
+			return false;
+		}
+		
+		planningFormateurs = new int[edf.getNbFormateurs()][equipes[0].length];
+		for (int k = 0; k < edf.getNbFormateurs(); k++) {
+			for (int j = 0; j < planningFormateurs[k].length; j++) {
+				planningFormateurs[k][j] = conges[k][j] ? EDF.NO_DISPONIBLE : EDF.PAS_DE_COURS;
+			}
+		}
+		for (int d = 0; d < nbJours; d++) {
+			for (int t = 0; t < EDF.NB_TRACES_JOUR; t++) {
+				int j = d * EDF.NB_TRACES_JOUR + t;
+				int[] sessions = sessions(equipes, j);
+				for (int s = 0; s < sessions.length; s++) {
+					planningFormateurs[joursFormateurs[d][s]][j] = sessions[s];
+				}
+			}
+		}
+		System.out.println("Phase 2 : journées des formateurs entre "+min+" et "+max);
+		return true;
+	}
+	
+	/**
+	 * Le flot des formateurs pour une bande de journées
+	 * @return les formateurs qui travaillent chaque jour, null s'il n'y a pas de flot réalisable
+	 */
+	private static int[][] choisirFormateurs(int[] sessionsParJour, boolean[][] disponibles, int[] dejaTravaillees, int min, int max) {
+		int nbJours = sessionsParJour.length;
+		int nbFormateurs = dejaTravaillees.length;
+		// Les sommets : la source, les jours, les formateurs, le puits, puis la source et le puits des bornes inférieures
+		int source = 0;
+		int puits = 1 + nbJours + nbFormateurs;
+		Flot flot = new Flot(puits + 3);
+		int[] excedents = new int[puits + 1];
+		
+		int[][] arcs = new int[nbJours][nbFormateurs];
+		for (int d = 0; d < nbJours; d++) {
+			// L'arc source -> jour doit être saturé : sa borne inférieure est sa capacité
+			excedents[1 + d] += sessionsParJour[d];
+			excedents[source] -= sessionsParJour[d];
+			for (int k = 0; k < nbFormateurs; k++) {
+				arcs[d][k] = disponibles[d][k] ? flot.ajouterArc(1 + d, 1 + nbJours + k, 1) : -1;
+			}
+		}
+		for (int k = 0; k < nbFormateurs; k++) {
+			int bas = Math.max(0, min - dejaTravaillees[k]);
+			int haut = max - dejaTravaillees[k];
+			if(haut < bas) {
+				return null;
+			}
+			flot.ajouterArc(1 + nbJours + k, puits, haut - bas);
+			excedents[puits] += bas;
+			excedents[1 + nbJours + k] -= bas;
+		}
+		flot.ajouterArc(puits, source, Integer.MAX_VALUE);
+		
+		int sourceBornes = puits + 1;
+		int puitsBornes = puits + 2;
+		int demande = 0;
+		for (int v = 0; v <= puits; v++) {
+			if(excedents[v] > 0) {
+				flot.ajouterArc(sourceBornes, v, excedents[v]);
+				demande += excedents[v];
+			} else if(excedents[v] < 0) {
+				flot.ajouterArc(v, puitsBornes, -excedents[v]);
+			}
+		}
+		if(flot.maximiser(sourceBornes, puitsBornes) < demande) {
+			return null;
+		}
+		
+		int[][] formateursJours = new int[nbJours][];
+		for (int d = 0; d < nbJours; d++) {
+			formateursJours[d] = new int[sessionsParJour[d]];
+			int s = 0;
+			for (int k = 0; k < nbFormateurs; k++) {
+				if(arcs[d][k] >= 0 && flot.getFlot(arcs[d][k]) > 0) {
+					formateursJours[d][s++] = k;
+				}
+			}
+		}
+		return formateursJours;
+	}
+	
+	/**
+	 * Recherche d'un chemin augmentant (algorithme de Kuhn) pour la session s
+	 */
+	private boolean augmenter(int s, int[] sessions, int[][] formationsSalles, int[] salleDeSession, int[] sessionDeSalle, boolean[] sessionsVues, boolean[] sallesVues) {
+		sessionsVues[s] = true;
+		for (int r = 0; r < sallesVues.length; r++) {
+			if(sallesVues[r] || formationsSalles[sessions[s] - 1][r] == EDF.PAS_DE_COURS) continue;
+			sallesVues[r] = true;
+			if(sessionDeSalle[r] == -1 || augmenter(sessionDeSalle[r], sessions, formationsSalles, salleDeSession, sessionDeSalle, sessionsVues, sallesVues)) {
+				salleDeSession[s] = r;
+				sessionDeSalle[r] = s;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * La coupe issue d'un ensemble de Hall : les sessions des formations de l'ensemble
+	 * ne peuvent pas dépasser le nombre de salles adaptées à au moins l'une d'elles
+	 */
+	private Coupe coupeSalles(int trace, int[] sessions, boolean[] sessionsVues, int[][] formationsSalles) {
+		boolean[] formationsVues = new boolean[formationsSalles.length];
+		int nbFormations = 0;
+		for (int s = 0; s < sessions.length; s++) {
+			if(sessionsVues[s] && !formationsVues[sessions[s] - 1]) {
+				formationsVues[sessions[s] - 1] = true;
+				nbFormations++;
+			}
+		}
+		
+		int[] formationsCoupe = new int[nbFormations];
+		int c = 0;
+		for (int f = 0; f < formationsSalles.length; f++) {
+			if(formationsVues[f]) formationsCoupe[c++] = f + 1;
+		}
+		
+		int nbSalles = 0;
+		for (int r = 0; r < formationsSalles[0].length; r++) {
+			for (int f : formationsCoupe) {
+				if(formationsSalles[f - 1][r] != EDF.PAS_DE_COURS) {
+					nbSalles++;
+					break;
+				}
+			}
+		}
+		return new Coupe(trace, formationsCoupe, nbSalles);
+	}
+	
+	/**
+	 * Les formations des sessions qui ont lieu pendant la trace j
+	 */
+	private int[] sessions(IntVar[][] equipes, int j) {
+		int nb = 0;
+		for (int i = 0; i < equipes.length; i++) {
+			if(equipes[i][j].getValue() > EDF.PAS_DE_COURS) nb++;
+		}
+		int[] sessions = new int[nb];
+		int c = 0;
+		for (int i = 0; i < equipes.length; i++) {
+			if(equipes[i][j].getValue() > EDF.PAS_DE_COURS) sessions[c++] = equipes[i][j].getValue();
+		}
+		return sessions;
+	}
+	
+	/**
+	 * Un flot maximum (algorithme de Dinic) sur un graphe aux arcs stockés par paires arc / arc inverse
+	 */
+	private static class Flot {
+		
+		private int nbSommets;
+		
+		private ArrayList<int[]> arcs = new ArrayList<int[]>();
+		
+		/** Les arcs sortant de chaque sommet, en indices dans arcs */
+		private ArrayList<ArrayList<Integer>> sortants = new ArrayList<ArrayList<Integer>>();
+		
+		private int[] niveaux;
+		
+		private int[] prochains;
+		
+		Flot(int nbSommets) {
+			this.nbSommets = nbSommets;
+			for (int v = 0; v < nbSommets; v++) {
+				sortants.add(new ArrayList<Integer>());
+			}
+		}
+		
+		/**
+		 * @return l'indice de l'arc, {origine, destination, capacité restante}
+		 */
+		int ajouterArc(int origine, int destination, int capacite) {
+			sortants.get(origine).add(arcs.size());
+			arcs.add(new int[] {origine, destination, capacite});
+			sortants.get(destination).add(arcs.size());
+			arcs.add(new int[] {destination, origine, 0});
+			return arcs.size() - 2;
+		}
+		
+		/** Le flot qui passe par l'arc : la capacité restante de son arc inverse */
+		int getFlot(int arc) {
+			return arcs.get(arc ^ 1)[2];
+		}
+		
+		long maximiser(int source, int puits) {
+			long total = 0;
+			while(niveler(source, puits)) {
+				prochains = new int[nbSommets];
+				int pousse;
+				while((pousse = pousser(source, puits, Integer.MAX_VALUE)) > 0) {
+					total += pousse;
+				}
+			}
+			return total;
+		}
+		
+		private boolean niveler(int source, int puits) {
+			niveaux = new int[nbSommets];
+			Arrays.fill(niveaux, -1);
+			niveaux[source] = 0;
+			ArrayDeque<Integer> file = new ArrayDeque<Integer>();
+			file.add(source);
+			while(!file.isEmpty()) {
+				int v = file.poll();
+				for (int a : sortants.get(v)) {
+					int[] arc = arcs.get(a);
+					if(arc[2] > 0 && niveaux[arc[1]] < 0) {
+						niveaux[arc[1]] = niveaux[v] + 1;
+						file.add(arc[1]);
+					}
+				}
+			}
+			return niveaux[puits] >= 0;
+		}
+		
+		private int pousser(int v, int puits, int limite) {
+			if(v == puits) {
+				return limite;
+			}
+			for (; prochains[v] < sortants.get(v).size(); prochains[v]++) {
+				int a = sortants.get(v).get(prochains[v]);
+				int[] arc = arcs.get(a);
+				if(arc[2] > 0 && niveaux[arc[1]] == niveaux[v] + 1) {
+					int pousse = pousser(arc[1], puits, Math.min(limite, arc[2]));
+					if(pousse > 0) {
+						arc[2] -= pousse;
+						arcs.get(a ^ 1)[2] += pousse;
+						return pousse;
+					}
+				}
+			}
+			return 0;
+		}
+	}
+	
+	/**
+	 * Une coupe : pendant la trace donnée, les sessions des formations données ne peuvent pas dépasser max
+	 */
+	private static class Coupe {
+		
+		private int trace;
+		
+		private int[] formations;
+		
+		private int max;
+		
+		Coupe(int trace, int[] formations, int max) {
+			this.trace = trace;
+			this.formations = formations;
+			this.max = max;
+		}
+	}
+
+}
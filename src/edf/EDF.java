@@ -1,20 +1,26 @@
 package edf;
 
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.HashMap;
 
 import org.chocosolver.solver.Model;
+import org.chocosolver.solver.ParallelPortfolio;
 import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.search.limits.FailCounter;
 import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainMin;
+import org.chocosolver.solver.search.strategy.selectors.variables.ActivityBased;
+import org.chocosolver.solver.search.strategy.selectors.variables.DomOverWDeg;
+import org.chocosolver.solver.search.strategy.selectors.variables.InputOrder;
+import org.chocosolver.solver.search.strategy.strategy.AbstractStrategy;
 import org.chocosolver.solver.variables.BoolVar;
 import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.util.tools.ArrayUtils;
@@ -24,42 +30,98 @@ public class EDF {
 	// CONSTANTES :
 	
 	/** La constante qui fait référence à l'indisponibilité d'une équipe/formateur/trace pendant une trace */
-	private static final int NO_DISPONIBLE = -1;
+	static final int NO_DISPONIBLE = -1;
 	
 	/** La constante qui fait référence à une trace disponible qui n'a pas de cours */
-	private static final int PAS_DE_COURS = 0;
+	static final int PAS_DE_COURS = 0;
+	
+	// FICHIERS DE SORTIE :
+	
+	/** Le fichier de la solution des formateurs */
+	static final String SOLUTION_FORMATEURS = "./data/solutionFormateursCycle3.txt";
+	
+	/** Le fichier de la solution des équipes */
+	static final String SOLUTION_EQUIPES = "./data/solutionEquipesCycle3.txt";
+	
+	/** Le fichier de la solution des salles */
+	static final String SOLUTION_SALLES = "./data/solutionSallesCycle3.txt";
+	
+	/** Le fichier de la solution au format binaire (voir SolutionBinaire), qui remplace les trois fichiers texte avec l'option -binaire */
+	static final String SOLUTION_BINAIRE = "./data/solutionCycle3.edfs";
+	
+	/** Le fichier des solutions énumérées au format binaire, un bloc par solution (voir Enumeration) */
+	static final String SOLUTIONS_BINAIRE = "./data/solutionsCycle3.edfs";
+	
+	/** Le fichier des métriques du solveur, une ligne JSON toutes les deux secondes */
+	static final String METRIQUES_JSON = "./data/metriques.jsonl";
+	
+	/** Le port local sur lequel les métriques sont servies en texte */
+	static final int PORT_METRIQUES = 8042;
 	
 	// DONNÉES :
 	
-	/** La date de début du planning en format dd/mm/yyyy */
-	private static final String START_DATE = "04/09/2017";
+	/** Le répertoire des données fournies avec l'application */
+	static final String REPERTOIRE_DONNEES = "./data/";
+	
+	/** L'instance des nouveaux modèles : celle de REPERTOIRE_DONNEES, lue au premier modèle, ou celle de chargerInstance() */
+	private static volatile Instance instanceCourante;
 	
-	/** Le nombre d'équipes */
-	private static final int NB_EQUIPES = 14;
+	/** Les fichiers de données, en ISO-8859-1, dans le répertoire des données */
+	static final String FICHIER_DISPOS_EQUIPES = "DisposEquipes.csv";
 	
-	/** Le nombre de formateurs */
-	private static final int NB_FORMATEURS = 40;
+	static final String FICHIER_DISPOS_FORMATEURS = "DisposFormateurs.csv";
 	
-	/** Le nombre de formations données par le centre */
-	private static final int NB_FORMATIONS = 7;
+	static final String FICHIER_BESOINS_FORMATIONS = "BesoinsFormations.csv";
 	
-	/** Le numéro de salles */
-	private static final int NB_SALLES = 17;
+	static final String FICHIER_FORMATIONS_INFOS = "FormationsInfos.csv";
+	
+	static final String FICHIER_SALLES_FORMATIONS = "Salles-formations.csv";
+	
+	/** La date de début du planning en format dd/mm/yyyy */
+	static final String START_DATE = "04/09/2017";
 	
 	/** Le nombre de traces disponibles par jour */
-	private static final int NB_TRACES_JOUR = 3;
+	static final int NB_TRACES_JOUR = 3;
 	
 	/** Le nombre de jours à planifier */
-	private static final int NB_JOURS = 90;
+	static final int NB_JOURS = 90;
 	
-	/** Le nombre de jours à planifier */
+	/** Le nombre de semaines à planifier */
 	private static final int NB_SEMAINES = Math.floorDiv(NB_JOURS, 7);
 	
 	/** Le nombre de jours maximum qu'un formateur peut travailler par an */
-	private static final int NB_MAX_TRAVAIL_FORMATEUR = 30;
+	static final int NB_MAX_TRAVAIL_FORMATEUR = 30;
 	
 	/** La différence max. de journées travaillées entre le formateur qui travaille le plus et le moins */
-	private static final int NB_MAX_DIF_ENTRE_FORMS = 3;
+	static final int NB_MAX_DIF_ENTRE_FORMS = 3;
+	
+	/** Le nombre max. de rangs de trace différents sur lesquels une équipe suit une même formation */
+	static final int NB_MAX_TRACES_FORMATION = 3;
+	
+	/** Le nombre max. de sessions d'une même formation dans une semaine pour une équipe */
+	static final int NB_MAX_TRACES_SEMAINE = NB_TRACES_JOUR;
+	
+	// RÉSOLUTION :
+	
+	/** Le nombre d'échecs avant le premier redémarrage des profils de résolution qui redémarrent */
+	private static final int ECHECS_PREMIER_REDEMARRAGE = 100;
+	
+	/** Le facteur d'augmentation des redémarrages géométriques */
+	private static final double FACTEUR_GEOMETRIQUE = 1.2;
+	
+	/** Le nombre maximal de redémarrages */
+	private static final int NB_MAX_REDEMARRAGES = 100000;
+	
+	/** L'instance du modèle et ses tailles */
+	private Instance instance;
+	
+	private int nbEquipes;
+	
+	private int nbFormateurs;
+	
+	private int nbFormations;
+	
+	private int nbSalles;
 	
 	/** 
 	 * Cette matrice comporte la liste de formations
@@ -70,7 +132,7 @@ public class EDF {
 	private double[][] formations;
 	
 	/** 
-	 * Matrice de taille NB_EQUIPES x NB_FORMATIONS dont la valeur (i,j) 
+	 * Matrice de taille nbEquipes x nbFormations dont la valeur (i,j) 
 	 * indique le nombre de fois que l’équipe i a besoin de suivre  la formation j.
 	 */
 	private double[][] besoinsEquipe;
@@ -81,6 +143,53 @@ public class EDF {
 	**/
 	private double[][] formationsParEquipe;
 	
+	/** 
+	 * Matrice de taille nbFormations x nbSalles dont la valeur (i,j) est l'id de la formation i
+	 * si la salle j est adaptée à cette formation, PAS_DE_COURS sinon
+	 */
+	private int[][] formationsSalles;
+	
+	/** Le domaine de chaque salle : NO_DISPONIBLE, PAS_DE_COURS et les formations pour lesquelles elle est adaptée */
+	private int[][] domainesSalles;
+	
+	/** Le nombre de salles adaptées à chaque formation */
+	private int[] sallesAdaptees;
+	
+	/** Le nombre de salles adaptées à au moins une formation */
+	private int sallesUtiles;
+	
+	/** Les traces pendant lesquelles chaque formateur est en congés */
+	private boolean[][] congesFormateurs;
+	
+	/** Les jours pendant lesquels chaque équipe est disponible pour les formations */
+	private boolean[][] disposEquipes;
+	
+	/** Le nombre de jours disponibles de chaque équipe depuis jourDebut jusqu'à la fin de l'horizon complet */
+	private int[] joursDisponibles;
+	
+	// HORIZON :
+	
+	/** Le premier jour planifié par ce modèle, compté depuis START_DATE */
+	private int jourDebut;
+	
+	/** Le nombre de jours planifiés par ce modèle */
+	private int nbJours;
+	
+	/** Le nombre de semaines planifiées par ce modèle */
+	private int nbSemaines;
+	
+	/** Le nombre de jours (depuis jourDebut) qui seront fixés après la résolution */
+	private int nbJoursFixes;
+	
+	/** Le nombre de jours restant à planifier depuis jourDebut jusqu'à la fin de l'horizon complet */
+	private int nbJoursRestants;
+	
+	/** L'état hérité de la partie déjà fixée du planning */
+	private EtatHorizon etat;
+	
+	/** Le nombre de traces disponibles par équipe après la partie fixée, jusqu'à la fin de l'horizon complet */
+	private int[] tracesDisponiblesApresFixes;
+	
 	// VARIABLES DE DÉCISION :
 	
 	/** Les variables du planning des équipe */
@@ -94,12 +203,11 @@ public class EDF {
 	
 	private ArrayList<BoolVar[][]> formationsSemaines;
 	
-	private IntVar minJourneesTravaillees;
-	
-	private IntVar maxJourneesTravaillees;
-		
 	private IntVar[] journeesTravailleesFormateurs;
 	
+	/** Le nombre de traces de chaque formation suivies par chaque équipe dans ce modèle */
+	private IntVar[][] tracesFormationsEquipes;
+	
 	//private BoolVar[] joursFormateur;
 	
 	private ArrayList<BoolVar[][]> formationsTraces;
@@ -112,70 +220,187 @@ public class EDF {
 	/** Le solver Choco */
 	private Solver solver;
 	
+	/** La stratégie de recherche utilisée par le solver */
+	private Strategie strategie;
+	
+	/** La graine aléatoire de la stratégie de recherche */
+	private long graine;
+	
+	/** Le profil de résolution appliqué par-dessus chaque stratégie (voir configurerRecherche()) */
+	private static ProfilResolution profilResolution = ProfilResolution.STANDARD;
+	
+	/** Faux pour créer des variables anonymes, quand les noms ne sont pas utiles (benchmarks, recherches répétées) */
+	private static boolean variablesNommees = true;
+	
+	/** Vrai pour profiler la propagation par famille de contraintes (voir ProfilPropagation) */
+	private static boolean profilage = false;
+	
+	/** Vrai pour écrire les solutions au format binaire (voir ouvrirSortie()) */
+	private static boolean sortieBinaire = false;
+	
+	/** Vrai pour rejeter à la construction les données dont une borne de capacité montre qu'elles sont infaisables (voir VerificationCapacites) */
+	private static boolean verificationCapacites = true;
+	
+	/** La famille de chaque contrainte posée : le nom de la méthode qui l'a posée */
+	private HashMap<Constraint, String> famillesContraintes = new HashMap<Constraint, String>();
+	
+	/** Le libellé (date et trace) de chaque trace de l'horizon, calculé une seule fois par jour */
+	private String[] libellesTraces;
+	
+	/** Le temps de construction du modèle en millisecondes, lecture des fichiers comprise */
+	private long tempsConstruction;
+	
+	/** Le nombre d'octets alloués pendant la construction du modèle */
+	private long octetsConstruction;
+	
+	/** Vrai si le modèle ne porte que le planning des équipes (phase 1 de la décomposition) */
+	private boolean equipesSeulement;
+	
+	/** Le vecteur de cardinalités de chaque trace : le nombre de sessions de chaque formation */
+	private IntVar[][] cardinalitesTraces;
+	
+	/** Le nombre de sessions de la trace la plus chargée de chaque jour, créé par le premier no-good de la décomposition */
+	private IntVar[] sessionsJours;
+	
 	public EDF() throws Exception {
+		this(0, NB_JOURS, NB_JOURS, NB_JOURS, null);
+	}
+	
+	/**
+	 * Construit le modèle de tout l'horizon
+	 * @param equipesSeulement vrai pour ne construire que le planning des équipes, 
+	 * les formateurs et les salles étant remplacés par des capacités par trace
+	 */
+	public EDF(boolean equipesSeulement) throws Exception {
+		this(0, NB_JOURS, NB_JOURS, NB_JOURS, null, equipesSeulement);
+	}
+	
+	/**
+	 * Construit le modèle d'une fenêtre de l'horizon de planification
+	 * @param jourDebut le premier jour de la fenêtre, compté depuis START_DATE (début de semaine)
+	 * @param nbJours le nombre de jours de la fenêtre
+	 * @param nbJoursFixes le nombre de jours de la fenêtre qui seront fixés après la résolution
+	 * @param nbJoursRestants le nombre de jours restant jusqu'à la fin de l'horizon complet
+	 * @param etat l'état hérité des fenêtres précédentes, null pour la première
+	 */
+	public EDF(int jourDebut, int nbJours, int nbJoursFixes, int nbJoursRestants, EtatHorizon etat) throws Exception {
+		this(jourDebut, nbJours, nbJoursFixes, nbJoursRestants, etat, false);
+	}
+	
+	public EDF(int jourDebut, int nbJours, int nbJoursFixes, int nbJoursRestants, EtatHorizon etat, boolean equipesSeulement) throws Exception {
+		this(getInstanceCourante(), jourDebut, nbJours, nbJoursFixes, nbJoursRestants, etat, equipesSeulement);
+	}
+	
+	/**
+	 * @param instance l'instance à planifier, lue par Instance.lire()
+	 */
+	public EDF(Instance instance, int jourDebut, int nbJours, int nbJoursFixes, int nbJoursRestants, EtatHorizon etat, boolean equipesSeulement) throws Exception {
+		this.instance = instance;
+		this.nbEquipes = instance.getNbEquipes();
+		this.nbFormateurs = instance.getNbFormateurs();
+		this.nbFormations = instance.getNbFormations();
+		this.nbSalles = instance.getNbSalles();
+		this.equipesSeulement = equipesSeulement;
+		this.jourDebut = jourDebut;
+		this.nbJours = nbJours;
+		this.nbSemaines = Math.floorDiv(nbJours, 7);
+		this.nbJoursFixes = nbJoursFixes;
+		this.nbJoursRestants = nbJoursRestants;
+		this.etat = etat;
+		
+		long debutConstruction = System.nanoTime();
+		long octetsDebut = octetsAlloues();
+		
 		model = new Model();
 		solver = model.getSolver();
 		
-		//Traitement des dates
-		Calendar c = Calendar.getInstance();
-		SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy");
-		Date date = formatter.parse(START_DATE);
-		
 		//Initialization des données
-		int tracesTot = NB_TRACES_JOUR * NB_JOURS;
+		int tracesTot = NB_TRACES_JOUR * nbJours;
 		
-		equipes = new IntVar[NB_EQUIPES][tracesTot];
-		formateurs = new IntVar[NB_FORMATEURS][tracesTot];
-		salles = new IntVar[NB_SALLES][tracesTot];
+		//Traitement des dates : une seule mise en forme par jour
+		libellesTraces = new String[tracesTot];
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+		LocalDate date = LocalDate.parse(START_DATE, formatter).plusDays(jourDebut);
+		for (int j = 0; j < nbJours; j++) {
+			String dateString = date.plusDays(j).format(formatter);
+			for (int t = 0; t < NB_TRACES_JOUR; t++) {
+				libellesTraces[j * NB_TRACES_JOUR + t] = dateString+" "+"T"+(t+1);
+			}
+		}
+		
+		equipes = new IntVar[nbEquipes][tracesTot];
+		formateurs = new IntVar[equipesSeulement ? 0 : nbFormateurs][tracesTot];
+		salles = new IntVar[equipesSeulement ? 0 : nbSalles][tracesTot];
 		formationsSemaines = new ArrayList<BoolVar[][]>();
 		formationsTraces = new ArrayList<BoolVar[][]>();
 		
-		for (int i = 0; i < NB_EQUIPES; i++) {
-			BoolVar[][] formationsSemainesEquipe = new BoolVar[NB_FORMATIONS][NB_SEMAINES];
+		for (int i = 0; i < nbEquipes; i++) {
+			BoolVar[][] formationsSemainesEquipe = new BoolVar[nbFormations][nbSemaines];
 			formationsSemaines.add(formationsSemainesEquipe);
 		}
 		
-		for (int i = 0; i < NB_EQUIPES; i++) {
-			BoolVar[][] formationsTraceEquipe = new BoolVar[NB_FORMATIONS][NB_TRACES_JOUR];
+		for (int i = 0; i < nbEquipes; i++) {
+			BoolVar[][] formationsTraceEquipe = new BoolVar[nbFormations][NB_TRACES_JOUR];
 			formationsTraces.add(formationsTraceEquipe);
 		}
 		
 		
+		formations = new double[nbFormations][3];
+		for (int i = 0; i < nbFormations; i++) {
+			formations[i][0] = i+1;
+		}
+		
+		formationsParEquipe = new double[nbEquipes][nbFormations];
+		besoinsEquipe = new double[nbEquipes][nbFormations];
+		
+		// Les disponibilités sont lues avant la création des variables : 
+		// une trace indisponible est créée directement comme constante NO_DISPONIBLE
+		lireDisponibilitesEquipes();
+		lireDsiponibilitesFormateurs();
+		
 		for (int i = 0; i < equipes.length; i++) {
 			for (int j = 0; j < tracesTot; j++) {
-				c.setTime(date);
-				c.add(Calendar.DATE, j/NB_TRACES_JOUR);
-				String dateString = formatter.format(c.getTime());
-				int trace = (j  % NB_TRACES_JOUR) + 1;
-				equipes[i][j] = model.intVar("EQ"+i+" "+dateString+" "+"T"+trace, NO_DISPONIBLE, NB_FORMATIONS);
+				if(disposEquipes[i][j / NB_TRACES_JOUR]) {
+					equipes[i][j] = creerVariable("EQ", i, j, PAS_DE_COURS, nbFormations);
+				} else {
+					equipes[i][j] = creerVariable("EQ", i, j, NO_DISPONIBLE, NO_DISPONIBLE);
+				}
 			}
 		}
 		
 		for (int i = 0; i < formateurs.length; i++) {
 			for (int j = 0; j < tracesTot; j++) {
-				c.setTime(date);
-				c.add(Calendar.DATE, j/NB_TRACES_JOUR);
-				String dateString = formatter.format(c.getTime());
-				int trace = (j  % NB_TRACES_JOUR) + 1;
 				//Si jamais on veut differencier les formateurs (c.a.d. qu'ils font des formations differentes), on change les valeurs du domaine et c'est tout
-				formateurs[i][j] = model.intVar("FORM"+i+" "+dateString+" "+"T"+trace, NO_DISPONIBLE, NB_FORMATIONS);
+				if(congesFormateurs[i][j]) {
+					formateurs[i][j] = creerVariable("FORM", i, j, NO_DISPONIBLE, NO_DISPONIBLE);
+				} else {
+					formateurs[i][j] = creerVariable("FORM", i, j, PAS_DE_COURS, nbFormations);
+				}
 			}
 		}
 		
-		formations = new double[NB_FORMATIONS][3];
-		for (int i = 0; i < NB_FORMATIONS; i++) {
-			formations[i][0] = i+1;
-		}
-		
-		formationsParEquipe = new double[NB_EQUIPES][NB_FORMATIONS];
-		besoinsEquipe = new double[NB_EQUIPES][NB_FORMATIONS];
-		
-		lireDisponibilitesEquipes();
 		lireBesoinsEquipes();
 		lireContraintesSalles();
-		lireDsiponibilitesFormateurs();
+		
+		if(this.etat == null) {
+			this.etat = etatInitial();
+		} else if(this.etat.isDebutCycle()) {
+			this.etat = etatInitial(this.etat.getJourneesTravaillees());
+		}
+		
+		if(verificationCapacites) {
+			new VerificationCapacites(this).verifier();
+		}
 		
 		contraintes();
+		
+		if(profilage) {
+			solver.setEngine(new ProfilPropagation(this));
+		}
+		
+		tempsConstruction = (System.nanoTime() - debutConstruction) / 1000000;
+		octetsConstruction = octetsAlloues() - octetsDebut;
+		Metriques.suivre(this);
 	}
 	
 	/** 
@@ -183,59 +408,220 @@ public class EDF {
 	**/
 	
 	public void contraintes() {
-		contrainteLiaisonEquipeFormSalle();
+		int premiere = model.getNbCstrs();
+		if(equipesSeulement) {
+			contrainteCapacitesTraces();
+			premiere = etiqueter("contrainteCapacitesTraces", premiere);
+		} else {
+			contrainteLiaisonEquipeFormSalle();
+			premiere = etiqueter("contrainteLiaisonEquipeFormSalle", premiere);
+		}
 		contrainteRespectBesoinsEquipes();
+		premiere = etiqueter("contrainteRespectBesoinsEquipes", premiere);
 		maxTraceParJourDuneFormation();
-		contraintesRHFormateurs();
+		premiere = etiqueter("maxTraceParJourDuneFormation", premiere);
+		if(equipesSeulement) {
+			journeesTravailleesFormateurs = new IntVar[0];
+		} else {
+			contraintesRHFormateurs();
+			premiere = etiqueter("contraintesRHFormateurs", premiere);
+		}
 		contrainteFormationsContigues();
+		etiqueter("contrainteFormationsContigues", premiere);
 		//reduirutilisationtraces1et5();
 	}
 	
+	/**
+	 * Range les contraintes posées depuis la contrainte d'indice premiere dans la famille donnée,
+	 * avec leur contrainte opposée si elles sont réifiées
+	 * @return le nombre de contraintes du modèle, premier indice de la famille suivante
+	 */
+	private int etiqueter(String famille, int premiere) {
+		Constraint[] contraintes = model.getCstrs();
+		for (int c = premiere; c < contraintes.length; c++) {
+			famillesContraintes.put(contraintes[c], famille);
+			if(contraintes[c].isReified()) {
+				famillesContraintes.put(contraintes[c].getOpposite(), famille);
+			}
+		}
+		return contraintes.length;
+	}
+	
+	/**
+	 * @return la famille de la contrainte du propagateur, "autres" pour celles posées hors de EDF (coupes de l'objectif, nogoods)
+	 */
+	public String getFamille(Propagator<?> propagateur) {
+		String famille = famillesContraintes.get(propagateur.getConstraint());
+		return famille == null ? "autres" : famille;
+	}
+	
 	public void contrainteLiaisonEquipeFormSalle() {
 		// Contrainte # 1 :
 		// Contrainte pour assurer que quand il y a une formation il y a bien une
 		// equipe, une salle et un formatteur
+		// Pour chaque trace, un seul vecteur de cardinalités (une case par formation) est partagé
+		// par les équipes, les formateurs et les salles. Il est borné dès sa création par le nombre
+		// de salles adaptées à chaque formation.
+		int[] valeursFormations = new int[nbFormations];
+		for (int j = 0; j < nbFormations; j++) {
+			valeursFormations[j] = (int) formations[j][0];
+		}
+		
+		cardinalitesTraces = new IntVar[equipes[0].length][];
 		for (int i = 0; i < equipes[0].length; i++) {
-			for (int j = 0; j < formations.length; j++) {
-				IntVar count = model.intVar("count_eq_for_"+i+"_"+j,0, NB_EQUIPES);
-				
-				IntVar[] columnEquipe = getColumn(equipes, i);
-				IntVar[] columnFormateur = getColumn(formateurs, i);
-				IntVar[] columnSalle = getColumn(salles, i);
-				
-				model.count((int) formations[j][0], columnEquipe, count).post();
-				model.count((int) formations[j][0], columnFormateur, count).post();
-				model.count((int) formations[j][0], columnSalle, count).post();
+			IntVar[] count = new IntVar[nbFormations];
+			for (int j = 0; j < nbFormations; j++) {
+				count[j] = model.intVar("count_eq_for_"+i+"_"+j, 0, Math.min(nbEquipes, sallesAdaptees[j]));
+			}
+			cardinalitesTraces[i] = count;
+			
+			IntVar[] columnEquipe = getColumn(equipes, i);
+			IntVar[] columnFormateur = getColumn(formateurs, i);
+			IntVar[] columnSalle = getColumn(salles, i);
+			
+			model.globalCardinality(columnEquipe, valeursFormations, count, false).post();
+			model.globalCardinality(columnFormateur, valeursFormations, count, false).post();
+			model.globalCardinality(columnSalle, valeursFormations, count, false).post();
+			if(sallesUtiles < nbEquipes) {
+				model.sum(count, "<=", sallesUtiles).post();
 			}
 		}
 	}
 	
+	public void contrainteCapacitesTraces() {
+		// Contrainte # 1 bis (phase 1 de la décomposition) :
+		// Sans formateurs ni salles dans le modèle, le nombre de sessions de chaque trace est borné
+		// par les formateurs qui ne sont pas en congés et par les salles adaptées à chaque formation
+		int[] valeursFormations = new int[nbFormations];
+		for (int j = 0; j < nbFormations; j++) {
+			valeursFormations[j] = (int) formations[j][0];
+		}
+		
+		cardinalitesTraces = new IntVar[equipes[0].length][nbFormations];
+		for (int i = 0; i < equipes[0].length; i++) {
+			int formateursDisponibles = 0;
+			for (int k = 0; k < nbFormateurs; k++) {
+				if(!congesFormateurs[k][i]) formateursDisponibles++;
+			}
+			
+			for (int j = 0; j < nbFormations; j++) {
+				cardinalitesTraces[i][j] = model.intVar("count_eq_for_"+i+"_"+j, 0, Math.min(nbEquipes, sallesAdaptees[j]));
+			}
+			model.globalCardinality(getColumn(equipes, i), valeursFormations, cardinalitesTraces[i], false).post();
+			model.sum(cardinalitesTraces[i], "<=", Math.min(formateursDisponibles, sallesUtiles)).post();
+		}
+	}
+	
+	/**
+	 * Coupe renvoyée par la phase 2 de la décomposition : pendant la trace donnée, 
+	 * les sessions des formations données ne peuvent pas dépasser max
+	 */
+	public void ajouterCoupe(int trace, int[] formationsCoupe, int max) {
+		IntVar[] sessions = new IntVar[formationsCoupe.length];
+		for (int j = 0; j < formationsCoupe.length; j++) {
+			sessions[j] = cardinalitesTraces[trace][formationsCoupe[j] - 1];
+		}
+		int premiere = model.getNbCstrs();
+		model.sum(sessions, "<=", max).post();
+		etiqueter("ajouterCoupe", premiere);
+	}
+	
+	/**
+	 * No-good renvoyé par la phase 2 de la décomposition : avec ces nombres de sessions de la trace la plus chargée
+	 * de chaque jour (les formateurs qui doivent y travailler), aucune affectation des formateurs ne respecte
+	 * leur budget de journées et l'écart de charge. Au moins un jour doit en avoir un autre.
+	 */
+	public void interdireSessionsJours(int[] sessionsParJour) {
+		int premiere = model.getNbCstrs();
+		if(sessionsJours == null) {
+			sessionsJours = new IntVar[nbJours];
+			for (int d = 0; d < nbJours; d++) {
+				IntVar[] sessionsTraces = new IntVar[NB_TRACES_JOUR];
+				for (int t = 0; t < NB_TRACES_JOUR; t++) {
+					sessionsTraces[t] = model.intVar(0, nbEquipes);
+					model.sum(cardinalitesTraces[d * NB_TRACES_JOUR + t], "=", sessionsTraces[t]).post();
+				}
+				sessionsJours[d] = model.intVar(0, nbEquipes);
+				model.max(sessionsJours[d], sessionsTraces).post();
+			}
+		}
+		Constraint[] differences = new Constraint[nbJours];
+		for (int d = 0; d < nbJours; d++) {
+			differences[d] = model.arithm(sessionsJours[d], "!=", sessionsParJour[d]);
+		}
+		model.or(differences).post();
+		etiqueter("interdireSessionsJours", premiere);
+	}
+	
+	/**
+	 * Sous-problème de la recherche distribuée : la première semaine complète de la fenêtre où l'équipe suit la formation,
+	 * -1 si elle ne la suit pendant aucune semaine complète (voir RechercheDistribuee)
+	 */
+	public void imposerPremiereSemaine(int equipe, int formation, int semaine) {
+		BoolVar[] semaines = formationsSemaines.get(equipe)[formation];
+		int premiere = model.getNbCstrs();
+		int avant = semaine < 0 ? semaines.length : semaine;
+		if(avant > 0) {
+			model.sum(Arrays.copyOf(semaines, avant), "=", 0).post();
+		}
+		if(semaine >= 0) {
+			model.arithm(semaines[semaine], "=", 1).post();
+		}
+		etiqueter("imposerPremiereSemaine", premiere);
+	}
+
 	public void contrainteRespectBesoinsEquipes() {
 		// Contrainte # 2 :
 		// Contrainte pour assurer que toutes les equipes suivent toutes les formations le bon nombre de fois
+		// Dans une fenêtre intermédiaire de l'horizon, une partie des traces restantes peut être laissée aux fenêtres suivantes
+		double[][] tracesRestantes = etat.getTracesRestantes();
+		tracesFormationsEquipes = new IntVar[nbEquipes][nbFormations];
 		for (int i = 0; i < equipes.length; i++) {
 			for (int j = 0; j < formations.length; j++) {
-				IntVar cFileIJ = model.intVar("cFile_equipe: "+i+"- formation:"+j, (int) formationsParEquipe[i][j]);
+				int min = isDerniereFenetre() ? (int) tracesRestantes[i][j] : 0;
+				IntVar cFileIJ = model.intVar("cFile_equipe: "+i+"- formation:"+j, min, (int) tracesRestantes[i][j]);
 				model.count((int) formations[j][0], equipes[i], cFileIJ).post();
+				tracesFormationsEquipes[i][j] = cFileIJ;
 			}
-		}	
+		}
+		
+		// Ce qui n'est pas fait dans la partie fixée de la fenêtre doit tenir dans les traces disponibles après elle
+		if(!isDerniereFenetre()) {
+			int[] valeursFormations = new int[nbFormations];
+			for (int j = 0; j < nbFormations; j++) {
+				valeursFormations[j] = (int) formations[j][0];
+			}
+			for (int i = 0; i < equipes.length; i++) {
+				int besoin = 0;
+				for (int j = 0; j < nbFormations; j++) {
+					besoin += (int) tracesRestantes[i][j];
+				}
+				int minFixe = besoin - tracesDisponiblesApresFixes[i];
+				if(minFixe > 0) {
+					IntVar[] tracesFixes = new IntVar[nbJoursFixes * NB_TRACES_JOUR];
+					System.arraycopy(equipes[i], 0, tracesFixes, 0, tracesFixes.length);
+					IntVar nbCours = model.intVar(minFixe, tracesFixes.length);
+					model.among(nbCours, tracesFixes, valeursFormations).post();
+				}
+			}
+		}
 	}
 	
 	public void maxTraceParJourDuneFormation() {
 		// Contrainte # 3 :
 		// Contrainte pour assurer que le nombre maximum des traces par jour de chaque formation soit respecté
-		int[] valeurs = new int[NB_FORMATIONS+2];
-		for (int l = PAS_DE_COURS; l < NB_FORMATIONS+2; l++) {
+		int[] valeurs = new int[nbFormations+2];
+		for (int l = PAS_DE_COURS; l < nbFormations+2; l++) {
 			valeurs[l] = l-1;
 		}
 		
 		for (int i = 0; i < equipes.length; i++) {
-			for (int j = 0; j < NB_JOURS; j++) {
-				IntVar[] maxPerFormation = new IntVar[NB_FORMATIONS+2];
+			for (int j = 0; j < nbJours; j++) {
+				IntVar[] maxPerFormation = new IntVar[nbFormations+2];
 				maxPerFormation[0] = model.intVar("Domaine no dispo :", 0, NB_TRACES_JOUR);
 				maxPerFormation[1] = model.intVar("Domaine pas de cours :", 0, NB_TRACES_JOUR);
 				
-				for (int l = 2; l < NB_FORMATIONS + 2; l++) {
+				for (int l = 2; l < nbFormations + 2; l++) {
 					maxPerFormation[l] = model.intVar("Domaine formation :"+(l-2), 0, (int)formations[l-2][2]);
 				}
 				
@@ -249,28 +635,17 @@ public class EDF {
 		//Contrainte # 4:
 		//Contrainte pour assurer la limite de 100 journees travaillees par formateur
 		
-		journeesTravailleesFormateurs = new IntVar[NB_FORMATEURS];
+		//Les journées déjà travaillées dans la partie fixée de l'horizon sont comptées
+		int[] journeesDejaTravaillees = etat.getJourneesTravaillees();
+		journeesTravailleesFormateurs = new IntVar[nbFormateurs];
 		for (int i = 0; i < journeesTravailleesFormateurs.length; i++) {
-			journeesTravailleesFormateurs[i] = model.intVar("Journées travaillées par la formateur "+i+1, 0, NB_MAX_TRAVAIL_FORMATEUR);
-		}
-		for(int i=0; i < formateurs.length; i++) {
-			BoolVar[] joursFormateur = model.boolVarArray(NB_JOURS);
-			for(int j=0; j < NB_JOURS; j++) {
-				IntVar[] tracesFormateur = getTracesJour(formateurs[i], j);
-				model.sum(tracesFormateur, ">", 0).reifyWith(joursFormateur[j]);
-			}
-			model.sum(joursFormateur,"<=", NB_MAX_TRAVAIL_FORMATEUR).post();
-			model.sum(joursFormateur, "=", journeesTravailleesFormateurs[i]).post();
+			journeesTravailleesFormateurs[i] = model.intVar("Journées travaillées par la formateur "+i+1, journeesDejaTravaillees[i], NB_MAX_TRAVAIL_FORMATEUR);
 		}
 		//Contrainte # 5:
 		//Contrainte pour assurer que la charge est assez repartie entre les formateurs
-		minJourneesTravaillees = model.intVar("Min de journees travaillees par un formateur", 0, NB_MAX_TRAVAIL_FORMATEUR);
-		maxJourneesTravaillees = model.intVar("Min de journees travaillees par un formateur", 0, NB_MAX_TRAVAIL_FORMATEUR);
-		
-		model.min(minJourneesTravaillees, journeesTravailleesFormateurs).post();
-		model.max(maxJourneesTravaillees, journeesTravailleesFormateurs).post();
-		
-		model.distance(minJourneesTravaillees, maxJourneesTravaillees, "<", NB_MAX_DIF_ENTRE_FORMS).post();
+		//Les deux sont propagées ensemble, pour tous les formateurs (voir PropagateurChargeFormateurs)
+		new Constraint("Charge des formateurs", new PropagateurChargeFormateurs(formateurs, journeesTravailleesFormateurs, 
+				journeesDejaTravaillees, NB_MAX_DIF_ENTRE_FORMS)).post();
 		
 	}
 	
@@ -278,104 +653,119 @@ public class EDF {
 		
 		//Contrainte # 6:
 		//Contrainte pour assurer qu'une formation est faite pendant une même semaine
+		//Contrainte # 7:
+		//Contrainte pour assurer qu'une formation est faite toujours sur une même trace
+		//Les deux sont propagées ensemble, équipe par équipe (voir PropagateurContiguite)
+		int[][] semainesRestantes = etat.getSemainesRestantes();
+		double[][] tracesRestantes = etat.getTracesRestantes();
 		for (int i = 0; i < equipes.length; i++) {
 			BoolVar[][] formationsEquipeSemaine = formationsSemaines.get(i);
 			for (int j = 0; j < formationsEquipeSemaine.length; j++) {
 				for (int k = 0; k < formationsEquipeSemaine[0].length; k++) {
 					int f = j+1;
-					int s = k+1;
-					formationsEquipeSemaine[j][k] = model.boolVar("Equipe : "+i+"- Formation : "+f+" - Semaine : "+s);
-				}
-			}
-			for (int s = 0; s < NB_SEMAINES; s++) {
-				IntVar[] tracesSemaine = getTracesSemaine(equipes[i], s);
-				
-				for (int j = 0; j < NB_FORMATIONS; j++) {
-					int maxBesoin = NB_TRACES_JOUR;
-					IntVar count = model.intVar(0, maxBesoin);
-					model.count(j+1, tracesSemaine, count).post();
-					
-					model.arithm(count, ">", PAS_DE_COURS).reifyWith(formationsEquipeSemaine[j][s]);
+					int s = jourDebut / 7 + k + 1;
+					formationsEquipeSemaine[j][k] = variablesNommees ? model.boolVar("Equipe : "+i+"- Formation : "+f+" - Semaine : "+s) : model.boolVar();
 				}
 			}
-			
-			for (int j = 0; j < formationsEquipeSemaine.length; j++) {
-				int nombreDeSemainesNecessaires = Math.floorDiv((int) besoinsEquipe[i][j], 5) + 1;
-				model.sum(formationsEquipeSemaine[j], "=", nombreDeSemainesNecessaires).post();
-			}
-		}
-		
-		//Contrainte # 7:
-		//Contrainte pour assurer qu'une formation est faite toujours sur une même trace
-		for (int i = 0; i < formationsTraces.size(); i++) {
 			BoolVar[][] formationsTracesEquipe = formationsTraces.get(i);
 			for (int j = 0; j < formationsTracesEquipe.length; j++) {
 				for (int k = 0; k < formationsTracesEquipe[0].length; k++) {
 					int e = i+1;
 					int f = j+1;
 					int t = k+1;
-					formationsTracesEquipe[j][k] = model.boolVar("Equipe : "+e+" - Formation : "+f+" - Trace : "+t);
+					formationsTracesEquipe[j][k] = variablesNommees ? model.boolVar("Equipe : "+e+" - Formation : "+f+" - Trace : "+t) : model.boolVar();
 				}
 			}
 			
-			for (int t = 0; t < NB_TRACES_JOUR; t++) {
-				IntVar[] tracesHoraireEquipe = new IntVar[NB_SEMAINES * 5];
-				int count = 0;
-				for (int s = 0; s < NB_SEMAINES; s++) {
-					IntVar[] tracesSemaineHoraire = getTracesSemainePourUneTrace(equipes[i], s, t);
-					for (int j = 0; j < tracesSemaineHoraire.length; j++) {
-						tracesHoraireEquipe[count] = tracesSemaineHoraire[j];
-						count++;
-					}
-				}
-				
-				for (int f = 0; f < NB_FORMATIONS; f++) {
-					int formation = f+1;
-					IntVar compteur = model.intVar(0, 10);
-					model.count(formation, tracesHoraireEquipe, compteur).post();
-					
-					model.arithm(compteur, ">", PAS_DE_COURS).reifyWith(formationsTracesEquipe[f][t]);
-				
+			// Dans une fenêtre intermédiaire, une formation terminée dans la fenêtre y prend toutes ses semaines restantes,
+			// une formation qui ne l'est pas doit laisser au moins une semaine aux suivantes
+			BoolVar[] terminees = new BoolVar[formationsEquipeSemaine.length];
+			if(!isDerniereFenetre()) {
+				for (int j = 0; j < formationsEquipeSemaine.length; j++) {
+					terminees[j] = model.arithm(tracesFormationsEquipes[i][j], "=", (int) tracesRestantes[i][j]).reify();
 				}
 			}
 			
-			for (int j = 0; j < formationsTracesEquipe.length; j++) {
-				model.sum(formationsTracesEquipe[j], "<=", 3).post();
+			// Une session par trace d'une même semaine au plus, 10 sessions au plus sur un même rang de trace
+			new Constraint("Contiguite equipe "+i, new PropagateurContiguite(equipes[i], formationsEquipeSemaine, formationsTracesEquipe, 
+					semainesRestantes[i], isDerniereFenetre(), terminees, NB_MAX_TRACES_FORMATION, NB_MAX_TRACES_SEMAINE, 10)).post();
+		}
+		
+	}
+	
+	/**
+	 * Contrainte # 12 (optionnelle) : cassage des symétries
+	 * Les formateurs qui ont les mêmes congés et les mêmes journées déjà travaillées sont interchangeables,
+	 * comme les salles adaptées aux mêmes formations : leurs plannings sont ordonnés lexicographiquement.
+	 * @return le nombre de contraintes d'ordre posées
+	 */
+	public int casserSymetries() {
+		int premiere = model.getNbCstrs();
+		int nbContraintes = 0;
+		int[] journeesDejaTravaillees = etat.getJourneesTravaillees();
+		
+		boolean[] formateursTraites = new boolean[formateurs.length];
+		for (int i = 0; i < formateurs.length; i++) {
+			if(formateursTraites[i]) continue;
+			int precedent = i;
+			for (int k = i + 1; k < formateurs.length; k++) {
+				if(!formateursTraites[k] && journeesDejaTravaillees[i] == journeesDejaTravaillees[k] && Arrays.equals(congesFormateurs[i], congesFormateurs[k])) {
+					model.lexLessEq(formateurs[precedent], formateurs[k]).post();
+					formateursTraites[k] = true;
+					precedent = k;
+					nbContraintes++;
+				}
 			}
 		}
 		
+		boolean[] sallesTraitees = new boolean[salles.length];
+		for (int i = 0; i < salles.length; i++) {
+			if(sallesTraitees[i]) continue;
+			int precedent = i;
+			for (int k = i + 1; k < salles.length; k++) {
+				if(!sallesTraitees[k] && Arrays.equals(ArrayUtils.getColumn(formationsSalles, i), ArrayUtils.getColumn(formationsSalles, k))) {
+					model.lexLessEq(salles[precedent], salles[k]).post();
+					sallesTraitees[k] = true;
+					precedent = k;
+					nbContraintes++;
+				}
+			}
+		}
+		
+		etiqueter("casserSymetries", premiere);
+		return nbContraintes;
 	}
-	public void reduirutilisationtraces1et5() {
+	
+	/**
+	 * L'objectif : maximiser le nombre de premières et dernières traces de la journée sans cours
+	 * @return la variable de l'objectif
+	 */
+	public IntVar reduirutilisationtraces1et5() {
 		//Contrainte # 8:
 		//Contrainte pour reduir l'utilisation des traces 1 et 5 
-		IntVar [] cde=new IntVar[NB_EQUIPES];
+		int premiere = model.getNbCstrs();
+		IntVar [] cde=new IntVar[nbEquipes];
 		for (int i = 0; i < equipes.length; i++) {
 			IntVar [] aux=getTraces1et5(equipes[i]);
-			IntVar c1=model.intVar(0, NB_JOURS*2);
+			IntVar c1=model.intVar(0, nbJours*2);
 			model.count(PAS_DE_COURS, aux, c1).post();
 			cde[i]=c1;
 		}
-		IntVar sum= model.intVar(0, NB_JOURS*2*NB_EQUIPES);
+		IntVar sum= model.intVar(0, nbJours*2*nbEquipes);
 		model.sum(cde, "=", sum).post();
+		etiqueter("reduirutilisationtraces1et5", premiere);
 		model.setObjective(true, sum);
+		return sum;
 	}
 	
+	/**
+	 * Les traces 1 et 5 de l'ancien découpage en 5 traces : la première et la dernière trace de chaque jour
+	 */
 	public IntVar[] getTraces1et5(IntVar[] e) {
-		IntVar [] resp= new IntVar[NB_JOURS*2];
-		boolean m=false;
-		int c=0;
-		for (int i = 0; i < e.length; i++) {
-			if(!m) {
-				resp[c]=e[i];
-				c++;
-				i=i+3;
-				m=true;
-			}
-			else {
-				resp[c]=e[i];
-				c++;
-				m=false;
-			}
+		IntVar [] resp= new IntVar[nbJours*2];
+		for (int j = 0; j < nbJours; j++) {
+			resp[2*j] = e[j*NB_TRACES_JOUR];
+			resp[2*j+1] = e[j*NB_TRACES_JOUR + NB_TRACES_JOUR - 1];
 		}
 		return resp;
 	}
@@ -386,241 +776,316 @@ public class EDF {
 	
 	public void lireDisponibilitesEquipes() throws Exception {
 		
-		// Lecture des disponibilités des équipes
-		File file = new File("./data/DisposEquipes.csv");
-		BufferedReader buf;
-		buf = new BufferedReader(new FileReader(file));
-		String line = buf.readLine();
-		line = buf.readLine();
+		// Lecture des disponibilités des équipes : le nom de l'équipe puis un champ par jour depuis START_DATE, "J" si l'équipe est disponible
+		LecteurCsv lecteur = new LecteurCsv(instance.getRepertoire()+FICHIER_DISPOS_EQUIPES);
+		lecteur.ligneSuivante();
 		
 		int equipe = 0;
+		int jourFin = jourDebut + Math.max(nbJours, nbJoursRestants);
+		tracesDisponiblesApresFixes = new int[nbEquipes];
+		joursDisponibles = new int[nbEquipes];
+		disposEquipes = new boolean[nbEquipes][nbJours];
 		
-		while(line != null) {
-			String[] team = line.split(";");
-			Integer[] teamAvailability = new Integer[NB_JOURS];
-			
-			if(team.length < NB_JOURS) {
-				buf.close();
-				throw new Exception("Les disponibilités des équipes ne sont pas complètes pour la période à planifier : "+NB_JOURS+" jours à partir du "+START_DATE);
-			} else {
-				// On trouve les dispos d'une équipe
-				for (int i = 0; i < teamAvailability.length; i++) {
-					if(team[i+1].equals("J")) {
-						teamAvailability[i] = 1;
-					}
-					else {
-						teamAvailability[i] = 0;
-					}
+		while(lecteur.ligneSuivante()) {
+			if(equipe == nbEquipes) {
+				lecteur.erreurLignesEnTrop("équipe en trop, l'instance en a "+nbEquipes);
+				break;
+			}
+			lecteur.champSuivant();
+			int jour = 0;
+			while(jour < jourFin && lecteur.champSuivant()) {
+				boolean disponible = lecteur.vaut('J');
+				// Contrainte # 9 : Les indisponibilités seront fixées à la valeur de la constante "NO_DISPONIBLE"
+				if(jour >= jourDebut && jour < jourDebut + nbJours) {
+					disposEquipes[equipe][jour - jourDebut] = disponible;
 				}
-				
-				// Contrainte # 9 : Les indisponibilités sont fixées à la valeur de la constante "NO_DISPONIBLE"
-				if(equipe < NB_EQUIPES) {
-					for (int j = 0; j < NB_JOURS; j++) {
-						if(teamAvailability[j] == 0) {
-							for (int k = 0; k < NB_TRACES_JOUR; k++) {
-								model.arithm(equipes[equipe][j * NB_TRACES_JOUR + k], "=", NO_DISPONIBLE).post();
-							}
-						} else {
-							for (int k = 0; k < NB_TRACES_JOUR; k++) {
-								model.arithm(equipes[equipe][j * NB_TRACES_JOUR + k], ">=", PAS_DE_COURS).post();
-							}
-						}
-					}
+				if(disponible && jour >= jourDebut) {
+					joursDisponibles[equipe]++;
+				}
+				// Capacité de l'équipe au-delà de la partie fixée de la fenêtre
+				if(disponible && jour >= jourDebut + nbJoursFixes && jour < jourDebut + nbJoursRestants) {
+					tracesDisponiblesApresFixes[equipe] += NB_TRACES_JOUR;
 				}
-				equipe++;
-				line = buf.readLine();
+				jour++;
 			}
+			if(jour < jourFin) {
+				lecteur.erreurLigne("les disponibilités ne sont pas complètes pour la période à planifier : "+(jourFin - jourDebut)
+						+" jours à partir du jour "+jourDebut+" après le "+START_DATE+", "+jour+" jours donnés");
+			}
+			equipe++;
+		}
+		if(equipe < nbEquipes) {
+			lecteur.erreurFichier(equipe+" équipes données pour "+nbEquipes+" dans l'instance");
 		}
-		buf.close();
+		lecteur.verifier();
 	}
 	
-	public void lireBesoinsEquipes() {
+	public void lireBesoinsEquipes() throws Exception {
 		
-		// Lecture des disponibilités des équipes
-		File file = new File("./data/BesoinsFormations.csv");
-		BufferedReader buf;
-		try {
-			buf = new BufferedReader(new FileReader(file));
-			String line = buf.readLine();
-			line = buf.readLine();
-			
-			int equipe = 0;
-			
-			while(line != null) {
-				String[] besoin = line.split(";");
-				
-				for (int i = 1; i < besoin.length; i++) {
-					String[] num = besoin[i].split(",");
-					
-					int a = Integer.parseInt(num[0].trim());
-					double c = a;
-					
-					if(num.length>1) {
-						double b = Integer.parseInt(num[1].trim().substring(0, 1));
-						c += b/10;
-					} 
-					
-					besoinsEquipe[equipe][i-1] = c;
-				}
-				equipe++;
-				line = buf.readLine();
+		// Lecture des besoins des équipes : le nom de l'équipe puis son nombre de sessions de chaque formation ("0,5" pour une demi-session)
+		LecteurCsv lecteur = new LecteurCsv(instance.getRepertoire()+FICHIER_BESOINS_FORMATIONS);
+		lecteur.ligneSuivante();
+		
+		int equipe = 0;
+		while(lecteur.ligneSuivante()) {
+			if(equipe == nbEquipes) {
+				lecteur.erreurLignesEnTrop("plus d'équipes que dans "+FICHIER_DISPOS_EQUIPES+" ("+nbEquipes+")");
+				break;
 			}
-			
-			// Lecture des informations des formations
-			file = new File("./data/FormationsInfos.csv");
-			buf = new BufferedReader(new FileReader(file));
-			line = buf.readLine();
-			line = buf.readLine();
-			line = buf.readLine();
-			
+			lecteur.champSuivant();
 			int formation = 0;
-
-			while(line != null) {
-				String[] besoin = line.split(";");
-				for (int i = 6; i <= 7 && formation < 7; i++) {
-					formations[formation][i-5] = Integer.parseInt(besoin[i]);
-				}
+			while(lecteur.champSuivant() && formation < nbFormations) {
+				besoinsEquipe[equipe][formation] = lecteur.decimal();
 				formation++;
-				line = buf.readLine();
 			}
-			
-			// Matrice des besoins de formations par equipes en traces totales remplie
-			for (int i = 0; i < formationsParEquipe.length; i++) {
-				for (int j = 0; j < formationsParEquipe[i].length; j++) {
-					formationsParEquipe[i][j] = besoinsEquipe[i][j] * formations[j][1];
+			if(formation < nbFormations) {
+				lecteur.erreurLigne(formation+" besoins donnés pour "+nbFormations+" formations");
+			}
+			equipe++;
+		}
+		if(equipe < nbEquipes) {
+			lecteur.erreurFichier(equipe+" équipes données pour "+nbEquipes+" dans "+FICHIER_DISPOS_EQUIPES);
+		}
+		lecteur.verifier();
+		
+		// Lecture des informations des formations, après deux lignes d'en-tête : la durée en jours (colonne 7)
+		// et le nombre de traces par jour (colonne 8). Les lignes au-delà des formations du centre sont ignorées
+		lecteur = new LecteurCsv(instance.getRepertoire()+FICHIER_FORMATIONS_INFOS);
+		lecteur.ligneSuivante();
+		lecteur.ligneSuivante();
+		
+		int formation = 0;
+		while(formation < nbFormations && lecteur.ligneSuivante()) {
+			for (int i = 0; i <= 7 && lecteur.champSuivant(); i++) {
+				if(i == 6) {
+					formations[formation][1] = lecteur.entier(1, Integer.MAX_VALUE);
+				} else if(i == 7) {
+					formations[formation][2] = lecteur.entier(1, NB_TRACES_JOUR);
 				}
 			}
-		} catch (Exception e) {
-			e.printStackTrace();
+			if(formations[formation][2] == 0) {
+				lecteur.erreurLigne("la durée et le nombre de traces par jour de la formation manquent");
+			}
+			formation++;
+		}
+		if(formation < nbFormations) {
+			lecteur.erreurFichier(formation+" formations données pour "+nbFormations+" dans "+FICHIER_SALLES_FORMATIONS);
+		}
+		lecteur.verifier();
+		
+		// Matrice des besoins de formations par equipes en traces totales remplie
+		for (int i = 0; i < formationsParEquipe.length; i++) {
+			for (int j = 0; j < formationsParEquipe[i].length; j++) {
+				formationsParEquipe[i][j] = besoinsEquipe[i][j] * formations[j][1];
+			}
 		}
 	}
 	
-	public void lireContraintesSalles() {
+	public void lireContraintesSalles() throws Exception {
 		// Contrainte # 10 : Toutes les salles ne possèdent pas l'équipement nécessaire pour toutes les formations
-		// Lecture des disponibilités des équipes
-		File file = new File("./data/Salles-formations.csv");
-		BufferedReader buf;
-		int[][] formationsSalles = new int [NB_FORMATIONS][NB_SALLES];
-		try {
-			buf = new BufferedReader(new FileReader(file));
-			String line = buf.readLine();
-			line = buf.readLine();
-			int formation = 0;
-			while(line != null) {
-				String[] ligne = line.split(";");
-				for(int i = 1;i < ligne.length; i++) {
-					formationsSalles[formation][i-1] = Integer.parseInt(ligne[i])*(formation+1);
-				}
-				formation++;
-				line = buf.readLine();
+		// Lecture des salles adaptées : le nom de la formation puis 1 ou 0 pour chaque salle
+		LecteurCsv lecteur = new LecteurCsv(instance.getRepertoire()+FICHIER_SALLES_FORMATIONS);
+		lecteur.ligneSuivante();
+		formationsSalles = new int [nbFormations][nbSalles];
+		int formation = 0;
+		while(lecteur.ligneSuivante()) {
+			if(formation == nbFormations) {
+				lecteur.erreurLignesEnTrop("formation en trop, l'instance en a "+nbFormations);
+				break;
 			}
-			
-			//Définition des domaines pour les salles
-			ArrayList<ArrayList<Integer>> domaines = new ArrayList<>();
-			for(int i = 0; i < formationsSalles[0].length; i++) {
-				ArrayList<Integer> formationSalle = new ArrayList<Integer>();
-				formationSalle.add(NO_DISPONIBLE);
-				formationSalle.add(PAS_DE_COURS);
-				for(int j = 0; j < formationsSalles.length; j++) {
-					if(!formationSalle.contains(formationsSalles[j][i])) {
-						formationSalle.add(formationsSalles[j][i]);
-					}
-				}
-				domaines.add(formationSalle);
+			lecteur.champSuivant();
+			int salle = 0;
+			while(salle < nbSalles && lecteur.champSuivant()) {
+				formationsSalles[formation][salle] = lecteur.entier(0, 1)*(formation+1);
+				salle++;
 			}
-			
-			int tracesTot = NB_TRACES_JOUR * NB_JOURS;
-			
-			//Traitement Date
-			Calendar c = Calendar.getInstance();
-			SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy");
-			Date date = formatter.parse(START_DATE);
-			
-			for (int i = 0; i < salles.length; i++) {
-	
-				//Récuperation des formations pour lesquelles la salle est adaptée
-				int [] d = new int [domaines.get(i).size()];
-			    for (int ii=0; ii < d.length; ii++)
-			    {
-			        d[ii] = domaines.get(i).get(ii).intValue();
-			    }
-			    
-				for (int j = 0; j < tracesTot; j++) {
-					c.setTime(date);
-					c.add(Calendar.DATE, j/NB_TRACES_JOUR);
-					String dateString = formatter.format(c.getTime());
-					int trace = (j  % NB_TRACES_JOUR) + 1;
-					//Si jamais on veut differencier les salles (c.a.d. qu'elle n'est pas suffisament equipée pour une formation, on supprime cette formation du domaine
-					salles[i][j] = model.intVar("SALLE"+i+" "+dateString+" "+"T"+trace, NO_DISPONIBLE, NB_FORMATIONS);
+			if(salle < nbSalles) {
+				lecteur.erreurLigne(salle+" salles données pour "+nbSalles);
+			}
+			formation++;
+		}
+		if(formation < nbFormations) {
+			lecteur.erreurFichier(formation+" formations données pour "+nbFormations+" dans l'instance");
+		}
+		lecteur.verifier();
+		
+		//Définition des domaines pour les salles
+		ArrayList<ArrayList<Integer>> domaines = new ArrayList<>();
+		sallesAdaptees = new int[nbFormations];
+		sallesUtiles = 0;
+		for(int i = 0; i < formationsSalles[0].length; i++) {
+			ArrayList<Integer> formationSalle = new ArrayList<Integer>();
+			formationSalle.add(NO_DISPONIBLE);
+			formationSalle.add(PAS_DE_COURS);
+			for(int j = 0; j < formationsSalles.length; j++) {
+				if(!formationSalle.contains(formationsSalles[j][i])) {
+					formationSalle.add(formationsSalles[j][i]);
+				}
+				if(formationsSalles[j][i] != PAS_DE_COURS) {
+					sallesAdaptees[j]++;
 				}
 			}
-		} catch (Exception e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			if(formationSalle.size() > 2) {
+				sallesUtiles++;
+			}
+			domaines.add(formationSalle);
+		}
+		
+		//Récuperation des formations pour lesquelles chaque salle est adaptée
+		domainesSalles = new int[nbSalles][];
+		for (int i = 0; i < nbSalles; i++) {
+			domainesSalles[i] = new int [domaines.get(i).size()];
+		    for (int ii=0; ii < domainesSalles[i].length; ii++)
+		    {
+		    	domainesSalles[i][ii] = domaines.get(i).get(ii).intValue();
+		    }
+		    Arrays.sort(domainesSalles[i]);
+		}
+		
+		int tracesTot = NB_TRACES_JOUR * nbJours;
+		
+		for (int i = 0; i < salles.length; i++) {
+			for (int j = 0; j < tracesTot; j++) {
+				//Une salle qui n'est pas suffisament equipée pour une formation n'a pas cette formation dans son domaine
+				salles[i][j] = variablesNommees ? model.intVar("SALLE"+i+" "+libellesTraces[j], domainesSalles[i]) : model.intVar(domainesSalles[i]);
+			}
 		}
 	}
 	
-	public void lireDsiponibilitesFormateurs() {
+	public void lireDsiponibilitesFormateurs() throws Exception {
 		// Contrainte # 11 : Les formateurs ne sont pas disponibles pendant les périodes de congés
-		// Lecture des disponibilit�s des �quipes
-				File file = new File("./data/DisposFormateurs.csv");
-				BufferedReader buf;
-				try {
-					buf = new BufferedReader(new FileReader(file));
-					String line = buf.readLine();
-					line = buf.readLine();
-					
-					int id = 0;
-					ArrayList<Conge> conges = new ArrayList<Conge>();
-					
-					//R�cuperation des donn�es de cong�s
-					while(line != null) {
-						String[] formateur = line.split(";");
-						for (int i = 1; i < formateur.length; i = i+2) {
-							if(formateur[i].length() > 0) {
-								Conge conge = new Conge(id, formateur[i], formateur[i+1]);
-								conges.add(conge);
-							}
-						}
-						id++;
-						line = buf.readLine();
+		// Lecture des congés des formateurs : le nom du formateur puis des paires de dates jj/mm/aa de début et de fin de congés
+		LecteurCsv lecteur = new LecteurCsv(instance.getRepertoire()+FICHIER_DISPOS_FORMATEURS);
+		lecteur.ligneSuivante();
+		congesFormateurs = new boolean[nbFormateurs][NB_TRACES_JOUR * nbJours];
+		
+		//Dates du planning
+		LocalDate startDate = LocalDate.parse(START_DATE, DateTimeFormatter.ofPattern("dd/MM/yyyy")).plusDays(jourDebut);
+		LocalDate endDate = startDate.plusDays(nbJours);
+		
+		int formateur = 0;
+		while(lecteur.ligneSuivante()) {
+			if(formateur == nbFormateurs) {
+				lecteur.erreurLignesEnTrop("formateur en trop, l'instance en a "+nbFormateurs);
+				break;
+			}
+			lecteur.champSuivant();
+			while(lecteur.champSuivant()) {
+				if(lecteur.estVide()) {
+					if(lecteur.champSuivant() && !lecteur.estVide()) {
+						lecteur.erreur("date de début de congés manquante");
 					}
+					continue;
+				}
+				LocalDate dateDebutConges = lecteur.date();
+				if(!lecteur.champSuivant() || lecteur.estVide()) {
+					lecteur.erreur("date de fin de congés manquante");
+					continue;
+				}
+				LocalDate dateFinConges = lecteur.date();
+				if(dateDebutConges != null && dateFinConges != null && dateFinConges.isBefore(dateDebutConges)) {
+					DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yy");
+					lecteur.erreur("fin de congés ("+dateFinConges.format(formatter)+") avant leur début ("+dateDebutConges.format(formatter)+")");
+					continue;
+				}
+				
+				// Les congés qui débordent de la fenêtre planifiée sont tronqués à ses bornes
+				if(dateDebutConges != null && dateFinConges != null && dateFinConges.isAfter(dateDebutConges) 
+						&& dateFinConges.isAfter(startDate) && dateDebutConges.isBefore(endDate)) {
+					int premierJour = (int) Math.max(0, ChronoUnit.DAYS.between(startDate, dateDebutConges));
+					int dernierJour = (int) Math.min(nbJours, ChronoUnit.DAYS.between(startDate, dateFinConges));
 					
-					//Traitement des dates
-					DateTimeFormatter formatterDateTime = DateTimeFormatter.ofPattern("dd/MM/yy");
-					DateTimeFormatter formatterStartDate = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-					
-					//Dates du planning
-					LocalDate startDate = LocalDate.parse(START_DATE, formatterStartDate);
-					LocalDate endDate = startDate.plusDays(NB_JOURS);
-					
-					for (int i = 0; i < conges.size(); i++) {
-						Conge conge = conges.get(i);
-						int idFormateur = conge.getFormateur();
-						
-						LocalDate dateDebutConges = LocalDate.parse(conge.getDateDebut(), formatterDateTime);
-						LocalDate dateFinConges = LocalDate.parse(conge.getDateFin(), formatterDateTime);
-						
-						if(dateFinConges.isAfter(dateDebutConges) && dateDebutConges.isAfter(startDate) && dateFinConges.isBefore(endDate)) {
-							int joursConge = (int) ChronoUnit.DAYS.between(dateDebutConges, dateFinConges);
-							int joursDepuisDebut = (int) ChronoUnit.DAYS.between(startDate, dateDebutConges);
-							
-							for (int j = joursDepuisDebut * NB_TRACES_JOUR; j < (joursConge * NB_TRACES_JOUR); j++) {
-								model.arithm(formateurs[idFormateur][j], "=", NO_DISPONIBLE).post();
-							}
-							
-						}
+					for (int j = premierJour * NB_TRACES_JOUR; j < dernierJour * NB_TRACES_JOUR; j++) {
+						congesFormateurs[formateur][j] = true;
 					}
-					
-				} catch (Exception e) {
-					e.printStackTrace();
 				}
+			}
+			formateur++;
+		}
+		if(formateur < nbFormateurs) {
+			lecteur.erreurFichier(formateur+" formateurs donnés pour "+nbFormateurs+" dans l'instance");
+		}
+		lecteur.verifier();
 	}
 	
 	/** 
 	 *  Méthodes de support
 	**/
 	
+	/**
+	 * L'état au début de l'horizon : tous les besoins des équipes restent à planifier
+	 * et aucun formateur n'a encore travaillé
+	 */
+	public EtatHorizon etatInitial() {
+		return etatInitial(new int[nbFormateurs]);
+	}
+	
+	/**
+	 * L'état au début d'un cycle : tous les besoins des équipes restent à planifier,
+	 * les formateurs ont déjà travaillé les journées données
+	 */
+	public EtatHorizon etatInitial(int[] journeesTravaillees) {
+		double[][] tracesRestantes = new double[nbEquipes][nbFormations];
+		int[][] semainesRestantes = new int[nbEquipes][nbFormations];
+		for (int i = 0; i < nbEquipes; i++) {
+			for (int j = 0; j < nbFormations; j++) {
+				tracesRestantes[i][j] = formationsParEquipe[i][j];
+				semainesRestantes[i][j] = Math.floorDiv((int) besoinsEquipe[i][j], 5) + 1;
+			}
+		}
+		return new EtatHorizon(tracesRestantes, semainesRestantes, journeesTravaillees);
+	}
+	
+	/**
+	 * Une fenêtre est la dernière quand elle couvre tout ce qui reste de l'horizon : 
+	 * tous les besoins restants doivent alors y être satisfaits
+	 */
+	public boolean isDerniereFenetre() {
+		return nbJours >= nbJoursRestants;
+	}
+	
+	/**
+	 * Calcule, à partir de la solution courante, l'état à transmettre à la fenêtre suivante 
+	 * une fois les nbJoursFixes premiers jours fixés
+	 */
+	public EtatHorizon fixer() {
+		int tracesFixes = nbJoursFixes * NB_TRACES_JOUR;
+		int semainesFixees = Math.floorDiv(nbJoursFixes, 7);
+		
+		double[][] tracesRestantes = new double[nbEquipes][nbFormations];
+		int[][] semainesRestantes = new int[nbEquipes][nbFormations];
+		for (int i = 0; i < nbEquipes; i++) {
+			BoolVar[][] formationsEquipeSemaine = formationsSemaines.get(i);
+			for (int j = 0; j < nbFormations; j++) {
+				int traces = 0;
+				for (int k = 0; k < tracesFixes; k++) {
+					if(equipes[i][k].getValue() == (int) formations[j][0]) traces++;
+				}
+				int semaines = 0;
+				for (int s = 0; s < semainesFixees; s++) {
+					if(formationsEquipeSemaine[j][s].getValue() > 0) semaines++;
+				}
+				tracesRestantes[i][j] = etat.getTracesRestantes()[i][j] - traces;
+				semainesRestantes[i][j] = etat.getSemainesRestantes()[i][j] - semaines;
+			}
+		}
+		
+		int[] journeesTravaillees = new int[nbFormateurs];
+		for (int i = 0; i < nbFormateurs; i++) {
+			journeesTravaillees[i] = etat.getJourneesTravaillees()[i];
+			for (int j = 0; j < nbJoursFixes; j++) {
+				for (IntVar trace : getTracesJour(formateurs[i], j)) {
+					if(trace.getValue() > PAS_DE_COURS) {
+						journeesTravaillees[i]++;
+						break;
+					}
+				}
+			}
+		}
+		
+		return new EtatHorizon(tracesRestantes, semainesRestantes, journeesTravaillees);
+	}
+	
 	public IntVar[] getColumn(IntVar[][] matrix, int j) {		
 		return ArrayUtils.getColumn(matrix, j);
 	}
@@ -669,8 +1134,8 @@ public class EDF {
 	 *  Méthodes de résolution
 	**/
 	
-	public void go() throws Exception {
-		int tot = NB_TRACES_JOUR * NB_JOURS * NB_EQUIPES + NB_TRACES_JOUR * NB_JOURS * NB_FORMATEURS + NB_TRACES_JOUR * NB_JOURS * NB_SALLES + NB_FORMATEURS + NB_EQUIPES * (NB_SEMAINES * NB_FORMATIONS);
+	public IntVar[] getVariablesDecision() {
+		int tot = NB_TRACES_JOUR * nbJours * (equipes.length + formateurs.length + salles.length) + journeesTravailleesFormateurs.length + nbEquipes * (nbSemaines * nbFormations);
 		IntVar[] vars = new IntVar[tot];
 		int c = 0;
 		
@@ -706,7 +1171,7 @@ public class EDF {
 			}
 		}
 		
-		for (int j = 0; j < formateurs[0].length; j++) {
+		for (int j = 0; j < equipes[0].length; j++) {
 			for (int i = 0; i < formateurs.length; i++) {
 
 				vars[c] = formateurs[i][j];
@@ -714,14 +1179,141 @@ public class EDF {
 			}
 		}
 		
-		for (int j = 0; j < salles[0].length; j++) {
+		for (int j = 0; j < equipes[0].length; j++) {
 			for (int i = 0; i < salles.length; i++) {
 				vars[c] = salles[i][j];
 				c++;
 			}
 		}
 		
-		solver.setSearch(Search.activityBasedSearch(vars));
+		return vars;
+	}
+	
+	public void configurerRecherche(Strategie strategie, long graine) {
+		this.strategie = strategie;
+		this.graine = graine;
+		IntVar[] vars = getVariablesDecision();
+		
+		switch (strategie) {
+		case ACTIVITE:
+			solver.setSearch(new ActivityBased(model, vars, 0.999d, 0.2d, 8, 1, graine));
+			break;
+		case DOM_WDEG:
+			solver.setSearch(new DomOverWDeg(vars, graine, new IntDomainMin()));
+			break;
+		case ORDRE_STATIQUE:
+			solver.setSearch(Search.inputOrderLBSearch(vars));
+			break;
+		case ALEATOIRE:
+			solver.setSearch(Search.randomSearch(vars, graine));
+			break;
+		case STRUCTUREE:
+			IntVar[] semaines = new IntVar[0];
+			for (BoolVar[][] formationsSemainesEquipe : formationsSemaines) {
+				semaines = ArrayUtils.append(semaines, ArrayUtils.flatten(formationsSemainesEquipe));
+			}
+			solver.setSearch(
+					// 1. Les semaines de chaque formation de chaque équipe : une semaine n'est retenue que si les besoins l'imposent
+					new DomOverWDeg(semaines, graine, new IntDomainMin()),
+					// 2. et 3. Les traces des équipes dans cet ordre : semaine par semaine et position par position dans la journée,
+					// en plaçant d'abord les formations de la semaine
+					Search.intVarSearch(new InputOrder<IntVar>(model), new SessionDAbord(), getTracesParPosition(equipes)),
+					// 4. Les formateurs en équilibrant leur charge, puis les salles
+					Search.intVarSearch(new InputOrder<IntVar>(model), new ChargeFormateurs(formateurs, journeesTravailleesFormateurs), getTracesParTrace(formateurs)),
+					Search.intVarSearch(new InputOrder<IntVar>(model), new SessionDAbord(), getTracesParTrace(salles)),
+					Search.inputOrderLBSearch(vars));
+			break;
+		}
+		
+		// Le profil de résolution
+		switch (profilResolution.getConflits()) {
+		case DERNIER:
+			solver.setSearch(Search.lastConflict(solver.getSearch()));
+			break;
+		case ORDRE:
+			solver.setSearch(Search.conflictOrderingSearch(solver.getSearch()));
+			break;
+		default:
+			break;
+		}
+		// La recherche par activité redémarre déjà d'elle-même : ses redémarrages ne sont pas remplacés
+		if(strategie != Strategie.ACTIVITE) {
+			switch (profilResolution.getRedemarrages()) {
+			case LUBY:
+				solver.setLubyRestart(ECHECS_PREMIER_REDEMARRAGE, new FailCounter(model, ECHECS_PREMIER_REDEMARRAGE), NB_MAX_REDEMARRAGES);
+				break;
+			case GEOMETRIQUE:
+				solver.setGeometricalRestart(ECHECS_PREMIER_REDEMARRAGE, FACTEUR_GEOMETRIQUE, new FailCounter(model, ECHECS_PREMIER_REDEMARRAGE), NB_MAX_REDEMARRAGES);
+				break;
+			default:
+				break;
+			}
+		}
+		if(profilResolution.isNogoods()) {
+			solver.setNoGoodRecordingFromRestarts();
+		}
+	}
+	
+	/**
+	 * Les traces des plannings donnés, rangées par trace puis par ligne
+	 */
+	public IntVar[] getTracesParTrace(IntVar[][] plannings) {
+		return plannings.length == 0 ? new IntVar[0] : ArrayUtils.flatten(ArrayUtils.transpose(plannings));
+	}
+	
+	/**
+	 * Les traces des plannings donnés, rangées par ligne (équipe), puis par semaine, 
+	 * puis par position dans la journée, puis par jour
+	 */
+	public IntVar[] getTracesParPosition(IntVar[][] plannings) {
+		int nbTraces = plannings.length == 0 ? 0 : plannings[0].length;
+		IntVar[] traces = new IntVar[plannings.length * nbTraces];
+		int c = 0;
+		int tracesSemaine = NB_TRACES_JOUR * 7;
+		for (int i = 0; i < plannings.length; i++) {
+			for (int debutSemaine = 0; debutSemaine < nbTraces; debutSemaine += tracesSemaine) {
+				for (int t = 0; t < NB_TRACES_JOUR; t++) {
+					for (int j = debutSemaine + t; j < Math.min(nbTraces, debutSemaine + tracesSemaine); j += NB_TRACES_JOUR) {
+						traces[c] = plannings[i][j];
+						c++;
+					}
+				}
+			}
+		}
+		return traces;
+	}
+	
+	/**
+	 * Démarrage à chaud : les variables des plannings prennent d'abord leur valeur dans la solution
+	 * précédente lue dans les fichiers donnés, quand elle est encore possible, puis la stratégie
+	 * configurée complète le reste. Un fichier absent est ignoré.
+	 */
+	public SolutionPrecedente demarrerAChaud(String fichierEquipes, String fichierFormateurs, String fichierSalles) throws Exception {
+		if(solver.getSearch() == null) {
+			configurerRecherche(Strategie.ACTIVITE, 0);
+		}
+		AbstractStrategy<?> strategieConfiguree = solver.getSearch();
+		
+		SolutionPrecedente precedente = new SolutionPrecedente(new IntDomainMin());
+		System.out.println("Démarrage à chaud : "+precedente.lire(fichierEquipes, "EQ", equipes, this)+" sessions d'équipes, "
+				+precedente.lire(fichierFormateurs, "FORM", formateurs, this)+" sessions de formateurs, "
+				+precedente.lire(fichierSalles, "SALLE", salles, this)+" sessions de salles relues");
+		
+		IntVar[] plannings = ArrayUtils.append(ArrayUtils.flatten(equipes), ArrayUtils.flatten(formateurs), ArrayUtils.flatten(salles));
+		solver.setSearch(new DomOverWDeg(plannings, graine, precedente), strategieConfiguree);
+		return precedente;
+	}
+	
+	public void go() throws Exception {
+		configurerRecherche(Strategie.ACTIVITE, 0);
+		resoudre();
+	}
+	
+	/**
+	 * Résout avec la stratégie déjà configurée et écrit la solution
+	 */
+	public void resoudre() throws Exception {
+		System.out.println("Construction du modèle : "+tempsConstruction+" ms - "+octetsConstruction+" octets alloués");
 		solver.showSolutions(); 
 		solver.showShortStatistics();
 		System.out.println("go");
@@ -732,42 +1324,261 @@ public class EDF {
 		printSolution();
 	}
 	
-	public void printSolution() throws Exception {
-		PrintWriter writer = new PrintWriter("./data/solutionFormateursCycle3.txt", "UTF-8");
+	/**
+	 * Résolution en portfolio : nbTravailleurs copies du modèle sont construites et
+	 * résolues en parallèle, chacune avec sa propre stratégie et sa propre graine.
+	 * Le premier travailleur qui trouve une solution arrête tous les autres.
+	 * @return le planning du travailleur gagnant, null si aucune solution n'a été trouvée
+	 */
+	public static EDF goPortfolio(int nbTravailleurs, boolean symetries) throws Exception {
+		ParallelPortfolio portfolio = new ParallelPortfolio(false);
+		ArrayList<EDF> plannings = new ArrayList<EDF>();
+		Strategie[] strategies = Strategie.values();
 		
-		for(int i=0;i < formateurs.length;i++) {
-			for (int j = 0; j < formateurs[i].length; j++) {
-				if(formateurs[i][j].getValue() != NO_DISPONIBLE && formateurs[i][j].getValue() != 0) writer.println(formateurs[i][j]+"  ");
-			}
+		for (int i = 0; i < nbTravailleurs; i++) {
+			EDF edf = new EDF();
+			if(symetries) edf.casserSymetries();
+			edf.configurerRecherche(strategies[i % strategies.length], i);
+			portfolio.addModel(edf.model);
+			plannings.add(edf);
+		}
+		
+		System.out.println("go portfolio : "+nbTravailleurs+" travailleurs");
+		if(!portfolio.solve()) {
+			System.out.println("Aucune solution trouvée");
+			return null;
 		}
 		
-		writer.close();
-		writer = new PrintWriter("./data/solutionEquipesCycle3PMT.txt", "UTF-8");
+		Model gagnant = portfolio.getBestModel();
+		for (EDF edf : plannings) {
+			if(edf.model == gagnant) {
+				System.out.println("Stratégie gagnante : "+edf.strategie+" - Graine : "+edf.graine);
+				edf.solver.printStatistics();
+				edf.printSolution();
+				return edf;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * Écrit la solution courante dans les fichiers de sortie (voir ouvrirSortie())
+	 */
+	public void printSolution() throws Exception {
+		SortieSolution sortie = ouvrirSortie();
+		ecrireSolution(sortie, nbJours);
+		sortie.fermer();
+	}
+	
+	/**
+	 * La sortie des solutions : les trois fichiers texte, ou le fichier binaire avec l'option -binaire
+	 */
+	public static SortieSolution ouvrirSortie() throws IOException {
+		if(sortieBinaire) {
+			return new SolutionBinaire(SOLUTION_BINAIRE);
+		}
+		return new SolutionTexte(SOLUTION_EQUIPES, SOLUTION_FORMATEURS, SOLUTION_SALLES);
+	}
+	
+	/**
+	 * Écrit les nbJoursAEcrire premiers jours de la solution courante comme un bloc de la sortie
+	 */
+	public void ecrireSolution(SortieSolution sortie, int nbJoursAEcrire) throws IOException {
+		int tracesAEcrire = nbJoursAEcrire * NB_TRACES_JOUR;
+		ecrireSolution(sortie, nbJoursAEcrire, valeurs(formateurs, tracesAEcrire), valeurs(salles, tracesAEcrire));
+	}
+	
+	/**
+	 * Écrit les nbJoursAEcrire premiers jours du planning des équipes, avec des plannings des formateurs
+	 * et des salles affectés hors du modèle (voir Decomposition)
+	 */
+	public void ecrireSolution(SortieSolution sortie, int nbJoursAEcrire, int[][] planningFormateurs, int[][] planningSalles) throws IOException {
+		int tracesAEcrire = nbJoursAEcrire * NB_TRACES_JOUR;
+		int semainesAEcrire = Math.floorDiv(nbJoursAEcrire, 7);
 		
+		int[][][] semaines = new int[equipes.length][nbFormations][semainesAEcrire];
 		for(int i=0;i < equipes.length;i++) {
-			
 			IntVar[][] org = formationsSemaines.get(i);
 			for (int j = 0; j < org.length; j++) {
-				for (int k = 0; k < org[0].length; k++) {
-					if(org[j][k].getValue() > 0) writer.println(org[j][k]+"  ");
+				for (int k = 0; k < semainesAEcrire; k++) {
+					semaines[i][j][k] = org[j][k].getValue();
 				}
 			}
-			
-			for (int j = 0; j < equipes[i].length; j++) {
-				if(equipes[i][j].getValue() != NO_DISPONIBLE && equipes[i][j].getValue() != 0) writer.println(equipes[i][j]+"  ");
-			}
 		}
-		
-		writer.close();
-		writer = new PrintWriter("./data/solutionSallesCycle3.txt", "UTF-8");	
-		
-		for(int i=0;i < salles.length;i++) {
-			for (int j = 0; j < salles[i].length; j++) {
-				if(salles[i][j].getValue() != NO_DISPONIBLE && salles[i][j].getValue() != 0) writer.println(salles[i][j]+"  ");
+		sortie.ecrire(jourDebut, nbJoursAEcrire, valeurs(equipes, tracesAEcrire), planningFormateurs, planningSalles, semaines);
+	}
+	
+	/**
+	 * Les valeurs des tracesAEcrire premières traces de chaque ligne d'un planning
+	 */
+	private static int[][] valeurs(IntVar[][] planning, int tracesAEcrire) {
+		int[][] valeurs = new int[planning.length][tracesAEcrire];
+		for (int i = 0; i < planning.length; i++) {
+			for (int j = 0; j < tracesAEcrire; j++) {
+				valeurs[i][j] = planning[i][j].getValue();
 			}
 		}
-		
-		writer.close();
+		return valeurs;
+	}
+	
+	/**
+	 * Le libellé d'une trace de l'horizon, par exemple "10/09/2017 T2"
+	 */
+	public String getLibelleTrace(int j) {
+		return libellesTraces[j];
+	}
+	
+	/**
+	 * Crée la variable de la trace j de la ligne i d'un planning, nommée par exemple "EQ3 10/09/2017 T2"
+	 * ou anonyme si les noms des variables ne sont pas demandés
+	 */
+	private IntVar creerVariable(String prefixe, int i, int j, int min, int max) {
+		if(variablesNommees) {
+			return model.intVar(prefixe+i+" "+libellesTraces[j], min, max);
+		}
+		return model.intVar(min, max);
+	}
+	
+	/**
+	 * Le nombre d'octets alloués jusqu'ici par le thread courant, -1 si la JVM ne le mesure pas
+	 */
+	static long octetsAlloues() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+	
+	/**
+	 * Utilise les fichiers de données du répertoire donné pour les modèles construits ensuite sans instance explicite.
+	 * Les modèles déjà construits gardent leur instance.
+	 */
+	public static void chargerInstance(String repertoire) throws Exception {
+		instanceCourante = Instance.lire(repertoire);
+	}
+	
+	/**
+	 * L'instance des modèles construits sans instance explicite, lue dans REPERTOIRE_DONNEES au premier appel
+	 * si chargerInstance() n'a pas été appelée : ses tailles viennent toujours des fichiers
+	 */
+	public static synchronized Instance getInstanceCourante() throws Exception {
+		if(instanceCourante == null) {
+			instanceCourante = Instance.lire(REPERTOIRE_DONNEES);
+		}
+		return instanceCourante;
+	}
+	
+	public static void setVariablesNommees(boolean nommees) {
+		variablesNommees = nommees;
+	}
+	
+	public static void setProfilage(boolean profiler) {
+		profilage = profiler;
+	}
+	
+	public static void setSortieBinaire(boolean binaire) {
+		sortieBinaire = binaire;
+	}
+	
+	public static void setVerificationCapacites(boolean verification) {
+		verificationCapacites = verification;
+	}
+	
+	public static void setProfilResolution(ProfilResolution profil) {
+		profilResolution = profil;
+	}
+	
+	public static ProfilResolution getProfilResolution() {
+		return profilResolution;
+	}
+	
+	public long getTempsConstruction() {
+		return tempsConstruction;
+	}
+	
+	public long getOctetsConstruction() {
+		return octetsConstruction;
+	}
+	
+	public Solver getSolver() {
+		return solver;
+	}
+	
+	public IntVar[][] getEquipes() {
+		return equipes;
+	}
+	
+	public IntVar[][] getFormateurs() {
+		return formateurs;
+	}
+	
+	public IntVar[][] getSalles() {
+		return salles;
+	}
+	
+	public int getJourDebut() {
+		return jourDebut;
+	}
+	
+	public int getNbJours() {
+		return nbJours;
+	}
+	
+	public int getNbSemaines() {
+		return nbSemaines;
+	}
+	
+	public Instance getInstance() {
+		return instance;
+	}
+	
+	public int getNbEquipes() {
+		return nbEquipes;
+	}
+	
+	public int getNbFormateurs() {
+		return nbFormateurs;
+	}
+	
+	public int getNbFormations() {
+		return nbFormations;
+	}
+	
+	public int getNbSalles() {
+		return nbSalles;
+	}
+	
+	public double[][] getFormations() {
+		return formations;
+	}
+	
+	public boolean[][] getDisposEquipes() {
+		return disposEquipes;
+	}
+	
+	public int[] getJoursDisponibles() {
+		return joursDisponibles;
+	}
+	
+	public int[] getSallesAdaptees() {
+		return sallesAdaptees;
+	}
+	
+	public int getSallesUtiles() {
+		return sallesUtiles;
+	}
+	
+	public int[][] getFormationsSalles() {
+		return formationsSalles;
+	}
+	
+	public boolean[][] getCongesFormateurs() {
+		return congesFormateurs;
+	}
+	
+	public EtatHorizon getEtat() {
+		return etat;
 	}
 	
 	/** 
@@ -776,10 +1587,177 @@ public class EDF {
 	
 	public static void main(String[] args) {
 		try {
-			EDF edf = new EDF();
-			edf.go();
+			// L'option -symetries active le cassage des symétries dans tous les modes
+			// L'option -anonyme crée des variables sans nom, plus rapides à construire
+			// L'option -profil affiche en fin de résolution le profil de la propagation par famille de contraintes
+			// L'option -metriques expose les métriques du solveur (JMX, http://localhost:8042/metriques, data/metriques.jsonl)
+			// L'option -donnees repertoire lit les fichiers de données de ce répertoire au lieu de ./data/
+			// L'option -binaire écrit et relit les solutions au format binaire (data/solutionCycle3.edfs)
+			// L'option -sansverification cherche une solution même quand les bornes de capacité montrent que les données sont infaisables
+			// L'option -resolution PROFIL applique un profil de résolution (redémarrages, nogoods, conflits, voir ProfilResolution)
+			String[] ligneDeCommande = args;
+			boolean symetries = Arrays.asList(args).contains("-symetries");
+			EDF.setVariablesNommees(!Arrays.asList(args).contains("-anonyme"));
+			EDF.setProfilage(Arrays.asList(args).contains("-profil"));
+			EDF.setSortieBinaire(Arrays.asList(args).contains("-binaire"));
+			EDF.setVerificationCapacites(!Arrays.asList(args).contains("-sansverification"));
+			if(Arrays.asList(args).contains("-metriques")) {
+				Metriques.demarrer(PORT_METRIQUES, METRIQUES_JSON, 2000);
+			}
+			ArrayList<String> arguments = new ArrayList<String>(Arrays.asList(args));
+			arguments.remove("-symetries");
+			arguments.remove("-anonyme");
+			arguments.remove("-metriques");
+			arguments.remove("-profil");
+			arguments.remove("-binaire");
+			arguments.remove("-sansverification");
+			int donnees = arguments.indexOf("-donnees");
+			if(donnees >= 0 && donnees + 1 < arguments.size()) {
+				EDF.chargerInstance(arguments.get(donnees + 1));
+				arguments.remove(donnees + 1);
+				arguments.remove(donnees);
+			}
+			int resolution = arguments.indexOf("-resolution");
+			if(resolution >= 0 && resolution + 1 < arguments.size()) {
+				EDF.setProfilResolution(ProfilResolution.valueOf(arguments.get(resolution + 1)));
+				arguments.remove(resolution + 1);
+				arguments.remove(resolution);
+			}
+			args = arguments.toArray(new String[0]);
+			
+			if(args.length > 0 && args[0].equals("portfolio")) {
+				int nbTravailleurs = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+				EDF.goPortfolio(nbTravailleurs, symetries);
+			} else if(args.length > 0 && args[0].equals("decomposition")) {
+				int nbIterations = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+				new Decomposition(nbIterations).go();
+			} else if(args.length > 0 && args[0].equals("horizon")) {
+				int nbJoursTotal = args.length > 1 ? Integer.parseInt(args[1]) : NB_JOURS;
+				int nbSemainesFenetre = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+				int nbSemainesFixees = args.length > 3 ? Integer.parseInt(args[3]) : 2;
+				HorizonGlissant horizon = new HorizonGlissant(nbJoursTotal, nbSemainesFenetre, nbSemainesFixees);
+				horizon.setSymetries(symetries);
+				horizon.go();
+			} else if(args.length > 0 && args[0].equals("annee")) {
+				// annee [jours] [cycles] [travailleurs] [tempsMax] [stratégie] [annuels|cycle] : les cycles de l'année résolus en parallèle,
+				// les besoins des fichiers étant ceux de l'année (par défaut) ou ceux de chaque cycle
+				int nbJoursAnnee = args.length > 1 ? Integer.parseInt(args[1]) : 364;
+				int nbCycles = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+				int nbTravailleurs = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+				int tempsMax = args.length > 4 ? Integer.parseInt(args[4]) : 300;
+				Strategie strategie = args.length > 5 ? Strategie.valueOf(args[5]) : Strategie.DOM_WDEG;
+				boolean besoinsParCycle = args.length > 6 && args[6].equals("cycle");
+				new PlanificationAnnuelle(nbJoursAnnee, nbCycles, nbTravailleurs, tempsMax, strategie, besoinsParCycle).go();
+			} else if(args.length > 0 && args[0].equals("distribue")) {
+				// distribue [travailleurs] [équipes découpées] [tempsMax par sous-problème] [stratégie] : des processus travailleurs locaux
+				int nbTravailleurs = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+				int nbEquipesDecoupees = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+				int tempsMax = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+				Strategie strategie = args.length > 4 ? Strategie.valueOf(args[4]) : Strategie.DOM_WDEG;
+				new RechercheDistribuee(nbTravailleurs, nbEquipesDecoupees, tempsMax, strategie, 
+						RechercheDistribuee.optionsTransmises(ligneDeCommande)).go();
+			} else if(args.length > 0 && args[0].equals("travailleur")) {
+				// travailleur hote port tempsMax stratégie graine : lancé par le mode distribue
+				new TravailleurDistribue(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Strategie.valueOf(args[4]), 
+						Long.parseLong(args[5]), symetries).go();
+			} else if(args.length > 0 && args[0].equals("chaud")) {
+				// chaud [solutionEquipes solutionFormateurs solutionSalles] : les fichiers de sortie par défaut
+				EDF edf = new EDF();
+				if(symetries) {
+					System.out.println("Contraintes de symétrie : "+edf.casserSymetries());
+				}
+				edf.configurerRecherche(Strategie.ACTIVITE, 0);
+				// chaud [solutionBinaire] avec l'option -binaire : le fichier binaire contient les trois plannings
+				String binaire = args.length > 1 ? args[1] : SOLUTION_BINAIRE;
+				SolutionPrecedente precedente = sortieBinaire ? edf.demarrerAChaud(binaire, binaire, binaire) 
+						: edf.demarrerAChaud(args.length > 1 ? args[1] : SOLUTION_EQUIPES, 
+						args.length > 2 ? args[2] : SOLUTION_FORMATEURS, args.length > 3 ? args[3] : SOLUTION_SALLES);
+				edf.resoudre();
+				System.out.println("Choix conformes à la solution précédente : "+precedente.getSuivis()+" - écarts : "+precedente.getEcarts());
+			} else if(args.length > 0 && args[0].equals("reparer")) {
+				// reparer [tempsMax] : répare la solution des fichiers de sortie après un changement des données
+				int tempsMax = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+				EDF edf = new Reparation(NB_JOURS, new int[] {0, 3, 7, NB_JOURS}, tempsMax, sortieBinaire ? SOLUTION_BINAIRE : SOLUTION_EQUIPES, 
+						sortieBinaire ? SOLUTION_BINAIRE : SOLUTION_FORMATEURS, sortieBinaire ? SOLUTION_BINAIRE : SOLUTION_SALLES).go();
+				if(edf != null) {
+					edf.printSolution();
+				}
+			} else if(args.length > 0 && args[0].equals("optimiser")) {
+				// optimiser [tempsMax] [stratégie] [graine] : optimisation LNS de l'objectif des traces 1 et 5
+				int tempsMax = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+				Strategie strategie = args.length > 2 ? Strategie.valueOf(args[2]) : Strategie.DOM_WDEG;
+				long graine = args.length > 3 ? Long.parseLong(args[3]) : 0;
+				new Optimisation(tempsMax, strategie, graine).go();
+			} else if(args.length > 0 && args[0].equals("enumerer")) {
+				// enumerer [nbMax] [tempsMax] [distance] [memoireMaxMo] [stratégie] : des plannings alternatifs, 
+				// numérotés au format texte ou à la suite dans data/solutionsCycle3.edfs avec l'option -binaire
+				int nbMax = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+				int tempsMax = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+				int distance = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+				long memoireMax = args.length > 4 ? Long.parseLong(args[4]) << 20 : Runtime.getRuntime().maxMemory() / 10 * 9;
+				Strategie strategie = args.length > 5 ? Strategie.valueOf(args[5]) : Strategie.DOM_WDEG;
+				EDF edf = new EDF();
+				if(symetries) {
+					System.out.println("Contraintes de symétrie : "+edf.casserSymetries());
+				}
+				SortieSolution sortie = sortieBinaire ? new SolutionBinaire(SOLUTIONS_BINAIRE) 
+						: new Enumeration.SortieNumerotee(SOLUTION_EQUIPES, SOLUTION_FORMATEURS, SOLUTION_SALLES);
+				new Enumeration(nbMax, tempsMax, distance, memoireMax, strategie).go(edf, sortie);
+				sortie.fermer();
+			} else if(args.length > 0 && args[0].equals("profils")) {
+				// profils [jours] [horizon] [tempsMax] [graines] [stratégie] [profil1 profil2 ...] : temps jusqu'à la première solution de chaque profil
+				int nbJours = args.length > 1 ? Integer.parseInt(args[1]) : 28;
+				int horizon = args.length > 2 ? Integer.parseInt(args[2]) : NB_JOURS;
+				int tempsMax = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+				int nbGraines = args.length > 4 ? Integer.parseInt(args[4]) : 10;
+				Strategie strategie = args.length > 5 ? Strategie.valueOf(args[5]) : Strategie.DOM_WDEG;
+				ProfilResolution[] profils = args.length > 6 ? new ProfilResolution[args.length - 6] : ProfilResolution.values();
+				for (int i = 6; i < args.length; i++) {
+					profils[i - 6] = ProfilResolution.valueOf(args[i]);
+				}
+				new CampagneResolution(nbJours, horizon, tempsMax, nbGraines, strategie).go(profils);
+			} else if(args.length > 0 && args[0].equals("generer")) {
+				// generer repertoire equipes formateurs salles jours densiteConges rareteSalles graine [besoins]
+				// besoins : fournis (par défaut), semaine ou une liste comme 1/1/1,5/1,5/0,5/0,5/0,75
+				double[] besoins = args.length > 9 ? GenerateurInstance.lireBesoins(args[9]) : GenerateurInstance.BESOINS_FOURNIS;
+				new GenerateurInstance(Integer.parseInt(args[2]), Integer.parseInt(args[3]), Integer.parseInt(args[4]), Integer.parseInt(args[5]), 
+						besoins, Double.parseDouble(args[6]), Double.parseDouble(args[7]), Long.parseLong(args[8])).ecrire(args[1]);
+			} else if(args.length > 0 && args[0].equals("convertir")) {
+				// convertir [fichierBinaire [solutionEquipes solutionFormateurs solutionSalles]] : réécrit une solution binaire au format texte
+				LecteurSolution lecteur = new LecteurSolution(args.length > 1 ? args[1] : SOLUTION_BINAIRE);
+				SortieSolution texte = new SolutionTexte(args.length > 2 ? args[2] : SOLUTION_EQUIPES, 
+						args.length > 3 ? args[3] : SOLUTION_FORMATEURS, args.length > 4 ? args[4] : SOLUTION_SALLES);
+				System.out.println(lecteur.copier(texte)+" bloc(s) convertis");
+				texte.fermer();
+				lecteur.fermer();
+			} else if(args.length > 0 && args[0].equals("echelle")) {
+				// echelle jours tempsMax facteur1 facteur2 ...
+				int nbJours = args.length > 1 ? Integer.parseInt(args[1]) : NB_JOURS;
+				int tempsMax = args.length > 2 ? Integer.parseInt(args[2]) : 60;
+				int[] facteurs = args.length > 3 ? new int[args.length - 3] : new int[] {1, 2, 4};
+				for (int i = 3; i < args.length; i++) {
+					facteurs[i - 3] = Integer.parseInt(args[i]);
+				}
+				new MiseAEchelle(nbJours, tempsMax, 0.1, 0.2, 0).go(facteurs);
+			} else {
+				EDF edf = new EDF();
+				if(symetries) {
+					System.out.println("Contraintes de symétrie : "+edf.casserSymetries());
+				}
+				edf.go();
+			}
+			if(profilage) {
+				System.out.println(ProfilPropagation.rapport());
+			}
 		} catch (Exception e) {
 			e.printStackTrace();
+		} finally {
+			// Aussi après une erreur : le serveur des métriques ne doit pas garder la JVM en vie
+			try {
+				Metriques.arreter();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
 		}
 	}
 
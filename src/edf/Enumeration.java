@@ -0,0 +1,159 @@
+package edf;
+
+import java.io.IOException;
+import java.util.ArrayList;
+
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.search.SearchState;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.tools.ArrayUtils;
+
+/**
+ * Énumération de plannings alternatifs à comparer : chaque solution est écrite dans la sortie
+ * dès qu'elle est trouvée, puis oubliée (seules les valeurs des traces des équipes de la dernière
+ * solution sont gardées pour la diversité).
+ * Deux solutions consécutives diffèrent sur au moins distance traces des équipes
+ * (voir PropagateurDistance). L'énumération s'arrête après nbMax solutions, après tempsMax secondes,
+ * ou quand le tas utilisé dépasse memoireMax.
+ * Sans redémarrage, la recherche est un parcours en profondeur qui ne repasse jamais par la même solution.
+ * Avec un profil de résolution qui redémarre, elle repart de la racine et pourrait retrouver une solution déjà écrite :
+ * chaque solution est alors interdite par un nogood sur toutes les traces libres des plannings.
+ * La stratégie ACTIVITE, qui redémarre après chaque solution, est refusée.
+ */
+public class Enumeration {
+	
+	/** Le nombre de noeuds entre deux mesures du tas */
+	private static final int NOEUDS_ENTRE_MESURES = 1000;
+	
+	private int nbMax;
+	
+	/** Le temps imparti, en secondes */
+	private int tempsMax;
+	
+	/** Le nombre minimal de traces des équipes qui changent d'une solution à la suivante, 0 pour n'en imposer aucun */
+	private int distance;
+	
+	/** Le tas utilisé maximal, en octets */
+	private long memoireMax;
+	
+	private Strategie strategie;
+	
+	/** Vrai si la recherche a été arrêtée par le budget mémoire */
+	private boolean memoireDepassee;
+	
+	public Enumeration(int nbMax, int tempsMax, int distance, long memoireMax, Strategie strategie) {
+		if(strategie == Strategie.ACTIVITE) {
+			throw new IllegalArgumentException("La stratégie ACTIVITE redémarre après chaque solution : les solutions énumérées se répéteraient");
+		}
+		this.nbMax = nbMax;
+		this.tempsMax = tempsMax;
+		this.distance = distance;
+		this.memoireMax = memoireMax;
+		this.strategie = strategie;
+	}
+	
+	/**
+	 * Énumère les solutions du modèle donné et les écrit une à une, chacune comme un bloc de la sortie
+	 * @return le nombre de solutions écrites
+	 */
+	public int go(EDF edf, SortieSolution sortie) throws IOException {
+		edf.configurerRecherche(strategie, 0);
+		Solver solver = edf.getSolver();
+		solver.limitTime(tempsMax+"s");
+		Runtime runtime = Runtime.getRuntime();
+		solver.addStopCriterion(() -> {
+			if(solver.getMeasures().getNodeCount() % NOEUDS_ENTRE_MESURES == 0 && runtime.totalMemory() - runtime.freeMemory() > memoireMax) {
+				memoireDepassee = true;
+			}
+			return memoireDepassee;
+		});
+		
+		// Les traces des équipes qui ne sont pas fixées par les données
+		IntVar[] tracesLibres = libres(edf.getEquipes());
+		
+		// Après un redémarrage, la recherche repart de la racine : les solutions déjà écrites sont interdites
+		if(EDF.getProfilResolution().getRedemarrages() != ProfilResolution.Redemarrages.AUCUN) {
+			solver.setNoGoodRecordingFromSolutions(ArrayUtils.append(tracesLibres, libres(edf.getFormateurs()), libres(edf.getSalles())));
+		}
+		
+		// Une seule contrainte de distance, dont la référence devient chaque solution trouvée
+		PropagateurDistance precedente = null;
+		if(distance > 0) {
+			precedente = new PropagateurDistance(tracesLibres, Math.min(distance, tracesLibres.length));
+			new Constraint("Distance a la solution precedente", precedente).post();
+		}
+		
+		long debut = System.currentTimeMillis();
+		int nbSolutions = 0;
+		while(nbSolutions < nbMax && solver.solve()) {
+			nbSolutions++;
+			edf.ecrireSolution(sortie, edf.getNbJours());
+			System.out.println("Solution "+nbSolutions+" à "+(System.currentTimeMillis() - debut)+" ms - "+solver.getMeasures().getNodeCount()+" noeuds");
+			
+			if(precedente != null && nbSolutions < nbMax) {
+				// La solution suivante doit s'éloigner de celle-ci
+				precedente.changerReference();
+			}
+		}
+		
+		String arret = nbSolutions == nbMax ? "nombre de solutions atteint" 
+				: memoireDepassee ? "mémoire dépassée" 
+				: solver.getSearchState() == SearchState.STOPPED ? "temps écoulé" 
+				: "plus aucune solution";
+		System.out.println(nbSolutions+" solution(s) en "+(System.currentTimeMillis() - debut)+" ms - arrêt : "+arret);
+		return nbSolutions;
+	}
+	
+	/**
+	 * Les traces des plannings donnés qui ne sont pas fixées par les données
+	 */
+	private static IntVar[] libres(IntVar[][] plannings) {
+		ArrayList<IntVar> traces = new ArrayList<IntVar>();
+		for (IntVar trace : ArrayUtils.flatten(plannings)) {
+			if(!trace.isAConstant()) {
+				traces.add(trace);
+			}
+		}
+		return traces.toArray(new IntVar[0]);
+	}
+	
+	/**
+	 * Les solutions au format texte, chacune dans ses trois fichiers numérotés
+	 * (solutionEquipesCycle3_1.txt, solutionEquipesCycle3_2.txt...)
+	 */
+	public static class SortieNumerotee implements SortieSolution {
+		
+		private String fichierEquipes;
+		
+		private String fichierFormateurs;
+		
+		private String fichierSalles;
+		
+		private int numero;
+		
+		public SortieNumerotee(String fichierEquipes, String fichierFormateurs, String fichierSalles) {
+			this.fichierEquipes = fichierEquipes;
+			this.fichierFormateurs = fichierFormateurs;
+			this.fichierSalles = fichierSalles;
+		}
+		
+		@Override
+		public void ecrire(int jourDebut, int nbJours, int[][] equipes, int[][] formateurs, int[][] salles, int[][][] semaines) throws IOException {
+			numero++;
+			SortieSolution sortie = new SolutionTexte(numeroter(fichierEquipes), numeroter(fichierFormateurs), numeroter(fichierSalles));
+			sortie.ecrire(jourDebut, nbJours, equipes, formateurs, salles, semaines);
+			sortie.fermer();
+		}
+		
+		private String numeroter(String fichier) {
+			int point = fichier.lastIndexOf('.');
+			return point > fichier.lastIndexOf('/') ? fichier.substring(0, point)+"_"+numero+fichier.substring(point) : fichier+"_"+numero;
+		}
+		
+		@Override
+		public void fermer() {
+		}
+	}
+
+}
@@ -0,0 +1,65 @@
+package edf;
+
+/**
+ * L'état transmis d'une fenêtre à la suivante lors d'une résolution en horizon glissant :
+ * ce qu'il reste à planifier après la partie déjà fixée du planning.
+ */
+public class EtatHorizon {
+
+	/** Le volume de traces qu'il reste à planifier pour chaque équipe (lignes) et formation (colonnes) */
+	private double[][] tracesRestantes;
+
+	/** Le nombre de semaines qu'il reste à utiliser pour chaque équipe (lignes) et formation (colonnes) */
+	private int[][] semainesRestantes;
+
+	/** Le nombre de journées déjà travaillées par chaque formateur */
+	private int[] journeesTravaillees;
+
+	public EtatHorizon(double[][] tR, int[][] sR, int[] jT) {
+		tracesRestantes = tR;
+		semainesRestantes = sR;
+		journeesTravaillees = jT;
+	}
+
+	/**
+	 * L'état au début d'un nouveau cycle de planification : les besoins des équipes sont ceux des fichiers de données,
+	 * les journées des formateurs continuent celles des cycles précédents de l'année (voir PlanificationAnnuelle)
+	 */
+	public static EtatHorizon debutCycle(int[] journeesTravaillees) {
+		return new EtatHorizon(null, null, journeesTravaillees);
+	}
+
+	/**
+	 * Vrai pour l'état d'un début de cycle, dont les besoins restent à lire
+	 */
+	public boolean isDebutCycle() {
+		return tracesRestantes == null;
+	}
+
+	public double[][] getTracesRestantes() {
+		return tracesRestantes;
+	}
+
+	public int[][] getSemainesRestantes() {
+		return semainesRestantes;
+	}
+
+	public int[] getJourneesTravaillees() {
+		return journeesTravaillees;
+	}
+
+	public String toString() {
+		double traces = 0;
+		for (int i = 0; i < tracesRestantes.length; i++) {
+			for (int j = 0; j < tracesRestantes[i].length; j++) {
+				traces += tracesRestantes[i][j];
+			}
+		}
+		int journees = 0;
+		for (int i = 0; i < journeesTravaillees.length; i++) {
+			journees += journeesTravaillees[i];
+		}
+		return "Traces restantes : "+(int) traces+" - Journées travaillées par les formateurs : "+journees;
+	}
+
+}
@@ -0,0 +1,227 @@
+package edf;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+/**
+ * Génère une instance synthétique au format des fichiers de data/ :
+ * DisposEquipes, DisposFormateurs, BesoinsFormations, FormationsInfos et Salles-formations.
+ * Les formations (durées et traces par jour) sont celles de l'instance fournie, les besoins des équipes
+ * sont donnés (par défaut ceux de l'instance fournie), les équipes suivent son cycle de quarts avec un décalage aléatoire.
+ */
+public class GenerateurInstance {
+	
+	/** Le cycle de quarts des équipes de l'instance fournie : les jours J sont disponibles pour les formations */
+	private static final String CYCLE_EQUIPES = "JJJRMMMAANNRHHJJJJJRHMMAANNNRRRRRHHRJMMAAANNRRRHH";
+	
+	/** Les formations de l'instance fournie */
+	private static final String[] NOMS_FORMATIONS = {"CRE 1", "CRO1", "CRE3", "CRO 2", "CSU4", "CIA2", "CMSC"};
+	
+	/** La durée en traces de chaque formation */
+	private static final int[] DUREES_FORMATIONS = {1, 1, 2, 2, 4, 2, 4};
+	
+	/** 
+	 * Le besoin de chaque équipe pour chaque formation dans l'instance fournie, en sessions.
+	 * F3, F4 et F7 y demandent 4 traces, plus que NB_MAX_TRACES_SEMAINE : une fenêtre qui ne compte que des semaines
+	 * entières ne peut pas les planifier en une fois (voir VerificationCapacites)
+	 */
+	static final double[] BESOINS_FOURNIS = {1, 1, 2, 2, 0.5, 0.5, 1};
+	
+	/** Des besoins dont chacun tient dans une semaine (au plus NB_MAX_TRACES_SEMAINE traces) */
+	static final double[] BESOINS_SEMAINE = {1, 1, 1.5, 1.5, 0.5, 0.5, 0.75};
+	
+	/** Le nombre maximum de périodes de congés par formateur (colonnes du fichier) */
+	private static final int NB_MAX_CONGES = 6;
+	
+	private int nbEquipes;
+	
+	private int nbFormateurs;
+	
+	private int nbSalles;
+	
+	private int nbJours;
+	
+	/** Le besoin de chaque équipe pour chaque formation, en sessions */
+	private double[] besoins;
+	
+	/** La proportion des jours de l'horizon pendant lesquels un formateur est en congés */
+	private double densiteConges;
+	
+	/** La probabilité qu'une salle ne soit pas adaptée à une formation */
+	private double rareteSalles;
+	
+	private Random aleatoire;
+	
+	public GenerateurInstance(int nbEquipes, int nbFormateurs, int nbSalles, int nbJours, double densiteConges, double rareteSalles, long graine) {
+		this(nbEquipes, nbFormateurs, nbSalles, nbJours, BESOINS_FOURNIS, densiteConges, rareteSalles, graine);
+	}
+	
+	/**
+	 * @param besoins le besoin de chaque équipe pour chacune des formations, en sessions (par exemple BESOINS_SEMAINE)
+	 */
+	public GenerateurInstance(int nbEquipes, int nbFormateurs, int nbSalles, int nbJours, double[] besoins, double densiteConges, double rareteSalles, long graine) {
+		if(besoins.length != NOMS_FORMATIONS.length) {
+			throw new IllegalArgumentException(besoins.length+" besoins donnés pour "+NOMS_FORMATIONS.length+" formations");
+		}
+		this.nbEquipes = nbEquipes;
+		this.nbFormateurs = nbFormateurs;
+		this.nbSalles = nbSalles;
+		this.nbJours = nbJours;
+		this.besoins = besoins;
+		this.densiteConges = densiteConges;
+		this.rareteSalles = rareteSalles;
+		this.aleatoire = new Random(graine);
+	}
+	
+	/**
+	 * Écrit les cinq fichiers de l'instance dans le répertoire donné, créé si besoin
+	 */
+	public void ecrire(String repertoire) throws Exception {
+		new File(repertoire).mkdirs();
+		if(!repertoire.endsWith("/")) {
+			repertoire += "/";
+		}
+		ecrireDisposEquipes(repertoire+EDF.FICHIER_DISPOS_EQUIPES);
+		ecrireDisposFormateurs(repertoire+EDF.FICHIER_DISPOS_FORMATEURS);
+		ecrireBesoinsFormations(repertoire+EDF.FICHIER_BESOINS_FORMATIONS);
+		ecrireFormationsInfos(repertoire+EDF.FICHIER_FORMATIONS_INFOS);
+		ecrireSallesFormations(repertoire+EDF.FICHIER_SALLES_FORMATIONS);
+	}
+	
+	private void ecrireDisposEquipes(String fichier) throws Exception {
+		PrintWriter writer = new PrintWriter(fichier, "ISO-8859-1");
+		StringBuilder ligne = new StringBuilder("Equipes");
+		for (int j = 0; j < nbJours; j++) {
+			ligne.append(';');
+		}
+		writer.println(ligne);
+		for (int i = 0; i < nbEquipes; i++) {
+			int decalage = aleatoire.nextInt(CYCLE_EQUIPES.length());
+			ligne = new StringBuilder("E"+(i+1));
+			for (int j = 0; j < nbJours; j++) {
+				ligne.append(';').append(CYCLE_EQUIPES.charAt((j + decalage) % CYCLE_EQUIPES.length()));
+			}
+			writer.println(ligne);
+		}
+		writer.close();
+	}
+	
+	private void ecrireDisposFormateurs(String fichier) throws Exception {
+		DateTimeFormatter formatterStartDate = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yy");
+		LocalDate debut = LocalDate.parse(EDF.START_DATE, formatterStartDate);
+		
+		PrintWriter writer = new PrintWriter(fichier, "ISO-8859-1");
+		StringBuilder ligne = new StringBuilder("Nom");
+		for (int c = 1; c <= NB_MAX_CONGES; c++) {
+			ligne.append(";Début Congés ").append(c).append(";Fin Congés ").append(c);
+		}
+		writer.println(ligne);
+		for (int k = 0; k < nbFormateurs; k++) {
+			ligne = new StringBuilder("Formateur "+(k+1));
+			// Des périodes de 1 à 14 jours jusqu'à atteindre la densité de congés demandée
+			int joursConges = (int) Math.round(densiteConges * nbJours);
+			for (int c = 0; c < NB_MAX_CONGES && joursConges > 0; c++) {
+				int duree = Math.min(joursConges, 1 + aleatoire.nextInt(14));
+				int premierJour = aleatoire.nextInt(Math.max(1, nbJours - duree));
+				// Le jour de fin n'est pas compris dans les congés
+				ligne.append(';').append(debut.plusDays(premierJour).format(formatter));
+				ligne.append(';').append(debut.plusDays(premierJour + duree).format(formatter));
+				joursConges -= duree;
+			}
+			writer.println(ligne);
+		}
+		writer.close();
+	}
+	
+	private void ecrireBesoinsFormations(String fichier) throws Exception {
+		PrintWriter writer = new PrintWriter(fichier, "ISO-8859-1");
+		StringBuilder ligne = new StringBuilder();
+		for (int f = 0; f < NOMS_FORMATIONS.length; f++) {
+			ligne.append(";F").append(f+1);
+		}
+		writer.println(ligne);
+		for (int i = 0; i < nbEquipes; i++) {
+			ligne = new StringBuilder("Equipe "+(i+1));
+			for (int f = 0; f < besoins.length; f++) {
+				ligne.append(';').append(decimal(besoins[f]));
+			}
+			writer.println(ligne);
+		}
+		writer.close();
+	}
+	
+	/**
+	 * Un nombre au format des fichiers : virgule décimale, sans décimale pour un entier
+	 */
+	private static String decimal(double valeur) {
+		if(valeur == Math.rint(valeur)) {
+			return String.valueOf((long) valeur);
+		}
+		return String.valueOf(valeur).replace('.', ',');
+	}
+	
+	/**
+	 * Les besoins donnés en ligne de commande : "fournis", "semaine" ou une liste de besoins séparés par des /
+	 */
+	static double[] lireBesoins(String besoins) {
+		if(besoins.equals("fournis")) {
+			return BESOINS_FOURNIS;
+		}
+		if(besoins.equals("semaine")) {
+			return BESOINS_SEMAINE;
+		}
+		String[] valeurs = besoins.split("/");
+		double[] resultat = new double[valeurs.length];
+		for (int f = 0; f < valeurs.length; f++) {
+			resultat[f] = Double.parseDouble(valeurs[f].replace(',', '.'));
+		}
+		return resultat;
+	}
+	
+	private void ecrireFormationsInfos(String fichier) throws Exception {
+		PrintWriter writer = new PrintWriter(fichier, "ISO-8859-1");
+		writer.println("Action;;Stagiaires;;;;Durée;;;;;;;;");
+		writer.println(";;CE;IS;SUP;OP;Durée;Nombre de trace par jour;M 1;M 2;J2;J3;A3;A4;A5");
+		for (int f = 0; f < NOMS_FORMATIONS.length; f++) {
+			writer.println(";"+NOMS_FORMATIONS[f]+";0;0;0;0;"+DUREES_FORMATIONS[f]+";1;0;0;0;0;0;0;0");
+		}
+		writer.close();
+	}
+	
+	private void ecrireSallesFormations(String fichier) throws Exception {
+		int[][] adaptees = new int[NOMS_FORMATIONS.length][nbSalles];
+		for (int f = 0; f < adaptees.length; f++) {
+			boolean auMoinsUne = false;
+			for (int r = 0; r < nbSalles; r++) {
+				if(aleatoire.nextDouble() >= rareteSalles) {
+					adaptees[f][r] = 1;
+					auMoinsUne = true;
+				}
+			}
+			// Chaque formation doit avoir au moins une salle adaptée
+			if(!auMoinsUne) {
+				adaptees[f][aleatoire.nextInt(nbSalles)] = 1;
+			}
+		}
+		
+		PrintWriter writer = new PrintWriter(fichier, "ISO-8859-1");
+		StringBuilder ligne = new StringBuilder();
+		for (int r = 0; r < nbSalles; r++) {
+			ligne.append(";S").append(r+1);
+		}
+		writer.println(ligne);
+		for (int f = 0; f < adaptees.length; f++) {
+			ligne = new StringBuilder(NOMS_FORMATIONS[f]);
+			for (int r = 0; r < nbSalles; r++) {
+				ligne.append(';').append(adaptees[f][r]);
+			}
+			writer.println(ligne);
+		}
+		writer.close();
+	}
+
+}
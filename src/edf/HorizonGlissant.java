@@ -0,0 +1,74 @@
+package edf;
+
+/**
+ * Résolution du planning en horizon glissant : une fenêtre de quelques semaines est résolue,
+ * ses premières semaines sont fixées, puis la fenêtre avance d'autant. L'état restant 
+ * (besoins des équipes, semaines des formations, journées des formateurs) est transmis 
+ * d'une fenêtre à la suivante.
+ */
+public class HorizonGlissant {
+	
+	/** Le nombre total de jours à planifier */
+	private int nbJoursTotal;
+	
+	/** Le nombre de semaines de chaque fenêtre résolue */
+	private int nbSemainesFenetre;
+	
+	/** Le nombre de semaines fixées à la fin de la résolution de chaque fenêtre */
+	private int nbSemainesFixees;
+	
+	/** Active le cassage des symétries dans chaque fenêtre */
+	private boolean symetries;
+	
+	public HorizonGlissant(int nbJoursTotal, int nbSemainesFenetre, int nbSemainesFixees) {
+		if(nbSemainesFixees < 1 || nbSemainesFixees > nbSemainesFenetre) {
+			throw new IllegalArgumentException("Le nombre de semaines fixées doit être compris entre 1 et "+nbSemainesFenetre);
+		}
+		this.nbJoursTotal = nbJoursTotal;
+		this.nbSemainesFenetre = nbSemainesFenetre;
+		this.nbSemainesFixees = nbSemainesFixees;
+	}
+	
+	/**
+	 * Résout l'horizon fenêtre par fenêtre et écrit la partie fixée de chaque fenêtre
+	 * @return true si tout l'horizon a été planifié
+	 */
+	public boolean go() throws Exception {
+		SortieSolution sortie = EDF.ouvrirSortie();
+		
+		EtatHorizon etat = null;
+		int jourDebut = 0;
+		boolean planifie = true;
+		
+		while(jourDebut < nbJoursTotal) {
+			int nbJoursRestants = nbJoursTotal - jourDebut;
+			int nbJours = Math.min(nbSemainesFenetre * 7, nbJoursRestants);
+			int nbJoursFixes = nbJours == nbJoursRestants ? nbJours : nbSemainesFixees * 7;
+			
+			long debut = System.currentTimeMillis();
+			EDF edf = new EDF(jourDebut, nbJours, nbJoursFixes, nbJoursRestants, etat);
+			if(symetries) edf.casserSymetries();
+			edf.configurerRecherche(Strategie.ACTIVITE, 0);
+			
+			if(!edf.getSolver().solve()) {
+				System.out.println("Fenêtre du jour "+jourDebut+" au jour "+(jourDebut + nbJours)+" : aucune solution");
+				planifie = false;
+				break;
+			}
+			
+			edf.ecrireSolution(sortie, nbJoursFixes);
+			etat = edf.fixer();
+			System.out.println("Fenêtre du jour "+jourDebut+" au jour "+(jourDebut + nbJours)+" résolue en "+(System.currentTimeMillis() - debut)+" ms - "+etat);
+			
+			jourDebut += nbJoursFixes;
+		}
+		
+		sortie.fermer();
+		return planifie;
+	}
+	
+	public void setSymetries(boolean symetries) {
+		this.symetries = symetries;
+	}
+
+}
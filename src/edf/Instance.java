@@ -0,0 +1,77 @@
+package edf;
+
+/**
+ * Une instance du problème : le répertoire de ses fichiers de données et les tailles qui s'en déduisent.
+ * Chaque modèle EDF garde l'instance avec laquelle il a été construit.
+ */
+public class Instance {
+	
+	/** Le répertoire des fichiers de données, terminé par / */
+	private String repertoire;
+	
+	private int nbEquipes;
+	
+	private int nbFormateurs;
+	
+	/** Le nombre de formations données par le centre */
+	private int nbFormations;
+	
+	private int nbSalles;
+	
+	public Instance(String repertoire, int nbEquipes, int nbFormateurs, int nbFormations, int nbSalles) {
+		this.repertoire = repertoire;
+		this.nbEquipes = nbEquipes;
+		this.nbFormateurs = nbFormateurs;
+		this.nbFormations = nbFormations;
+		this.nbSalles = nbSalles;
+	}
+	
+	/**
+	 * Lit les tailles de l'instance dans les fichiers du répertoire donné : les équipes (DisposEquipes),
+	 * les formateurs (DisposFormateurs), les formations et les salles (Salles-formations)
+	 */
+	public static Instance lire(String repertoire) throws Exception {
+		if(!repertoire.endsWith("/")) {
+			repertoire += "/";
+		}
+		LecteurCsv lecteur = new LecteurCsv(repertoire+EDF.FICHIER_SALLES_FORMATIONS);
+		lecteur.ligneSuivante();
+		int nbSalles = lecteur.compterChamps() - 1;
+		int nbFormations = lecteur.compterLignes();
+		
+		lecteur = new LecteurCsv(repertoire+EDF.FICHIER_DISPOS_EQUIPES);
+		lecteur.ligneSuivante();
+		int nbEquipes = lecteur.compterLignes();
+		
+		lecteur = new LecteurCsv(repertoire+EDF.FICHIER_DISPOS_FORMATEURS);
+		lecteur.ligneSuivante();
+		int nbFormateurs = lecteur.compterLignes();
+		
+		return new Instance(repertoire, nbEquipes, nbFormateurs, nbFormations, nbSalles);
+	}
+	
+	public String getRepertoire() {
+		return repertoire;
+	}
+	
+	public int getNbEquipes() {
+		return nbEquipes;
+	}
+	
+	public int getNbFormateurs() {
+		return nbFormateurs;
+	}
+	
+	public int getNbFormations() {
+		return nbFormations;
+	}
+	
+	public int getNbSalles() {
+		return nbSalles;
+	}
+	
+	public String toString() {
+		return repertoire+" : "+nbEquipes+" équipes, "+nbFormateurs+" formateurs, "+nbFormations+" formations, "+nbSalles+" salles";
+	}
+
+}
@@ -0,0 +1,15 @@
+package edf;
+
+/**
+ * Le rejet des données par VerificationCapacites : une borne de capacité montre que l'instance n'a pas de solution.
+ * Les autres erreurs de construction d'un modèle (fichiers illisibles ou incomplets, voir LecteurCsv) restent des Exception.
+ */
+public class InstanceInfaisable extends Exception {
+	
+	private static final long serialVersionUID = 1L;
+	
+	public InstanceInfaisable(String message) {
+		super(message);
+	}
+
+}
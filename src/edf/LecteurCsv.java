@@ -0,0 +1,337 @@
+package edf;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+/**
+ * La lecture en flux d'un fichier CSV de données : séparateur ';', encodage ISO-8859-1,
+ * fins de ligne Windows ou Unix, lignes vides ignorées.
+ * Le fichier est lu d'un bloc par un canal NIO, puis parcouru octet par octet : en ISO-8859-1 un octet est un caractère,
+ * les champs sont convertis directement en entiers, décimaux ou dates, sans créer de chaîne par champ.
+ * Les erreurs de données sont notées avec le fichier, la ligne et la colonne sans interrompre la lecture ;
+ * verifier() les signale toutes à la fin.
+ */
+public class LecteurCsv {
+	
+	/** Au-delà, les erreurs ne sont plus détaillées, seulement comptées */
+	private static final int NB_MAX_ERREURS = 50;
+	
+	private String fichier;
+	
+	/** Le contenu du fichier */
+	private byte[] octets;
+	
+	/** La position du prochain octet à lire */
+	private int position;
+	
+	/** Le numéro de la ligne courante, à partir de 1 */
+	private int ligne;
+	
+	/** Le numéro du champ courant dans la ligne, à partir de 0 */
+	private int champ;
+	
+	/** Le champ courant, de debutChamp inclus à finChamp exclu */
+	private int debutChamp;
+	
+	private int finChamp;
+	
+	/** Vrai s'il reste un champ à lire dans la ligne courante */
+	private boolean resteChamp;
+	
+	private ArrayList<String> erreurs = new ArrayList<String>();
+	
+	private int nbErreurs;
+	
+	public LecteurCsv(String fichier) throws IOException {
+		this.fichier = fichier;
+		FileChannel canal = FileChannel.open(Paths.get(fichier), StandardOpenOption.READ);
+		try {
+			ByteBuffer tampon = ByteBuffer.allocate((int) canal.size());
+			while(tampon.hasRemaining() && canal.read(tampon) >= 0) {
+				// Un canal peut lire moins d'octets que demandé
+			}
+			octets = tampon.array();
+		} finally {
+			canal.close();
+		}
+	}
+	
+	/**
+	 * Passe à la ligne non vide suivante, en ignorant ce qui reste de la ligne courante
+	 * @return faux à la fin du fichier
+	 */
+	public boolean ligneSuivante() {
+		int fin = octets.length;
+		if(ligne > 0) {
+			// Fin de la ligne courante
+			while(position < fin && octets[position] != '\n') {
+				position++;
+			}
+			position++;
+		}
+		while(position < fin) {
+			ligne++;
+			int debut = position;
+			while(position < fin && estBlanc(octets[position])) {
+				position++;
+			}
+			if(position < fin && octets[position] != '\n') {
+				position = debut;
+				champ = -1;
+				resteChamp = true;
+				return true;
+			}
+			// Ligne vide
+			position++;
+		}
+		resteChamp = false;
+		return false;
+	}
+	
+	/**
+	 * Passe au champ suivant de la ligne courante
+	 * @return faux à la fin de la ligne
+	 */
+	public boolean champSuivant() {
+		if(!resteChamp) {
+			return false;
+		}
+		int fin = octets.length;
+		debutChamp = position;
+		while(position < fin && octets[position] != ';' && octets[position] != '\n') {
+			position++;
+		}
+		finChamp = position;
+		if(position < fin && octets[position] == ';') {
+			position++;
+		} else {
+			resteChamp = false;
+		}
+		// Les blancs autour du champ (et le retour chariot d'une fin de ligne Windows) ne comptent pas
+		while(debutChamp < finChamp && estBlanc(octets[debutChamp])) {
+			debutChamp++;
+		}
+		while(finChamp > debutChamp && estBlanc(octets[finChamp - 1])) {
+			finChamp--;
+		}
+		champ++;
+		return true;
+	}
+	
+	/**
+	 * Le nombre de champs restant dans la ligne courante, sans les champs vides de la fin (comme String.split())
+	 */
+	public int compterChamps() {
+		int nb = 0;
+		int nbNonVides = 0;
+		while(champSuivant()) {
+			nb++;
+			if(!estVide()) {
+				nbNonVides = nb;
+			}
+		}
+		return nbNonVides;
+	}
+	
+	/**
+	 * Le nombre de lignes non vides restant à lire
+	 */
+	public int compterLignes() {
+		int nb = 0;
+		while(ligneSuivante()) {
+			nb++;
+		}
+		return nb;
+	}
+	
+	/**
+	 * Note l'erreur donnée sur la ligne courante et sur chacune des lignes restantes qui ont au moins un champ non vide :
+	 * des lignes en trop pour l'instance lue
+	 */
+	public void erreurLignesEnTrop(String message) {
+		do {
+			if(compterChamps() > 0) {
+				erreurLigne(message);
+			}
+		} while(ligneSuivante());
+	}
+	
+	public boolean estVide() {
+		return debutChamp == finChamp;
+	}
+	
+	/**
+	 * Vrai si le champ courant est exactement le caractère c
+	 */
+	public boolean vaut(char c) {
+		return finChamp - debutChamp == 1 && octets[debutChamp] == (byte) c;
+	}
+	
+	/**
+	 * Le champ courant, entier entre min et max
+	 * @return l'entier, min s'il est invalide (l'erreur est notée)
+	 */
+	public int entier(int min, int max) {
+		int i = debutChamp;
+		boolean negatif = i < finChamp && octets[i] == '-';
+		if(negatif) {
+			i++;
+		}
+		if(i == finChamp) {
+			erreur("entier attendu, trouvé « "+texte()+" »");
+			return min;
+		}
+		long valeur = 0;
+		for (; i < finChamp; i++) {
+			int chiffre = octets[i] - '0';
+			if(chiffre < 0 || chiffre > 9 || valeur > Integer.MAX_VALUE) {
+				erreur("entier attendu, trouvé « "+texte()+" »");
+				return min;
+			}
+			valeur = valeur * 10 + chiffre;
+		}
+		if(negatif) {
+			valeur = -valeur;
+		}
+		if(valeur < min || valeur > max) {
+			erreur("valeur "+valeur+" hors de ["+min+", "+max+"]");
+			return min;
+		}
+		return (int) valeur;
+	}
+	
+	/**
+	 * Le champ courant, décimal positif ou nul ("0,5" ou "0.5")
+	 * @return le décimal, 0 s'il est invalide (l'erreur est notée)
+	 */
+	public double decimal() {
+		long entier = 0;
+		long fraction = 0;
+		long diviseur = 1;
+		boolean virgule = false;
+		boolean chiffres = false;
+		for (int i = debutChamp; i < finChamp; i++) {
+			byte c = octets[i];
+			if(c >= '0' && c <= '9' && diviseur < 1000000000000L && entier < Integer.MAX_VALUE) {
+				chiffres = true;
+				if(virgule) {
+					fraction = fraction * 10 + (c - '0');
+					diviseur *= 10;
+				} else {
+					entier = entier * 10 + (c - '0');
+				}
+			} else if((c == ',' || c == '.') && !virgule) {
+				virgule = true;
+			} else {
+				chiffres = false;
+				break;
+			}
+		}
+		if(!chiffres) {
+			erreur("nombre positif attendu, trouvé « "+texte()+" »");
+			return 0;
+		}
+		return entier + (double) fraction / diviseur;
+	}
+	
+	/**
+	 * Le champ courant, date au format jj/mm/aa ou jj/mm/aaaa
+	 * @return la date, null si elle est invalide (l'erreur est notée)
+	 */
+	public LocalDate date() {
+		int[] parties = new int[3];
+		int partie = 0;
+		int chiffres = 0;
+		for (int i = debutChamp; i < finChamp && partie < 3; i++) {
+			byte c = octets[i];
+			if(c >= '0' && c <= '9' && chiffres < 4) {
+				parties[partie] = parties[partie] * 10 + (c - '0');
+				chiffres++;
+			} else if(c == '/' && chiffres > 0 && partie < 2) {
+				partie++;
+				chiffres = 0;
+			} else {
+				partie = 3;
+			}
+		}
+		if(partie != 2 || (chiffres != 2 && chiffres != 4)) {
+			erreur("date jj/mm/aa attendue, trouvé « "+texte()+" »");
+			return null;
+		}
+		try {
+			return LocalDate.of(chiffres == 2 ? 2000 + parties[2] : parties[2], parties[1], parties[0]);
+		} catch (DateTimeException e) {
+			erreur("date invalide « "+texte()+" »");
+			return null;
+		}
+	}
+	
+	/**
+	 * Le champ courant en texte, pour les messages
+	 */
+	public String texte() {
+		return new String(octets, debutChamp, finChamp - debutChamp, StandardCharsets.ISO_8859_1);
+	}
+	
+	public int getLigne() {
+		return ligne;
+	}
+	
+	/**
+	 * Note une erreur sur le champ courant
+	 */
+	public void erreur(String message) {
+		noter(fichier+", ligne "+ligne+", colonne "+(champ + 1)+" : "+message);
+	}
+	
+	/**
+	 * Note une erreur sur la ligne courante
+	 */
+	public void erreurLigne(String message) {
+		noter(fichier+", ligne "+ligne+" : "+message);
+	}
+	
+	/**
+	 * Note une erreur sur tout le fichier
+	 */
+	public void erreurFichier(String message) {
+		noter(fichier+" : "+message);
+	}
+	
+	private void noter(String erreur) {
+		nbErreurs++;
+		if(erreurs.size() < NB_MAX_ERREURS) {
+			erreurs.add(erreur);
+		}
+	}
+	
+	/**
+	 * Signale toutes les erreurs notées pendant la lecture
+	 * @throws Exception si au moins une erreur a été notée
+	 */
+	public void verifier() throws Exception {
+		if(nbErreurs == 0) {
+			return;
+		}
+		StringBuilder message = new StringBuilder(nbErreurs+" erreur(s) de données :");
+		for (String erreur : erreurs) {
+			message.append("\n\t").append(erreur);
+		}
+		if(nbErreurs > erreurs.size()) {
+			message.append("\n\t... et ").append(nbErreurs - erreurs.size()).append(" autre(s)");
+		}
+		throw new Exception(message.toString());
+	}
+	
+	private static boolean estBlanc(byte c) {
+		return c == ' ' || c == '\t' || c == '\r';
+	}
+
+}
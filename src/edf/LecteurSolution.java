@@ -0,0 +1,169 @@
+package edf;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * La lecture en flux d'une solution au format binaire de SolutionBinaire, bloc par bloc :
+ * seul le bloc courant est en mémoire, et ses tableaux sont réutilisés d'un bloc à l'autre
+ * quand les blocs ont le même nombre de jours.
+ */
+public class LecteurSolution {
+	
+	private String fichier;
+	
+	private DataInputStream entree;
+	
+	private int nbEquipes;
+	
+	private int nbFormateurs;
+	
+	private int nbSalles;
+	
+	private int nbFormations;
+	
+	/** Le bloc courant */
+	private int jourDebut;
+	
+	private int nbJours;
+	
+	private int[][] equipes;
+	
+	private int[][] formateurs;
+	
+	private int[][] salles;
+	
+	private int[][][] semaines;
+	
+	private byte[] octets = new byte[0];
+	
+	public LecteurSolution(String fichier) throws IOException {
+		this.fichier = fichier;
+		entree = new DataInputStream(new BufferedInputStream(new FileInputStream(fichier), 1 << 16));
+		try {
+			if(entree.readInt() != SolutionBinaire.MAGIQUE) {
+				throw new IOException(fichier+" n'est pas une solution binaire");
+			}
+			short version = entree.readShort();
+			if(version != SolutionBinaire.VERSION) {
+				throw new IOException(fichier+" : version "+version+" du format binaire non lue (version "+SolutionBinaire.VERSION+" attendue)");
+			}
+			nbEquipes = entree.readInt();
+			nbFormateurs = entree.readInt();
+			nbSalles = entree.readInt();
+			nbFormations = entree.readInt();
+			int nbTracesJour = entree.readInt();
+			// START_DATE, en jour epoch
+			entree.readInt();
+			if(nbTracesJour != EDF.NB_TRACES_JOUR) {
+				throw new IOException(fichier+" : "+nbTracesJour+" traces par jour au lieu de "+EDF.NB_TRACES_JOUR);
+			}
+		} catch (IOException e) {
+			entree.close();
+			throw e instanceof EOFException ? new IOException(fichier+" : en-tête incomplet") : e;
+		}
+	}
+	
+	/**
+	 * Vrai si le fichier commence comme une solution binaire
+	 */
+	public static boolean estBinaire(String fichier) throws IOException {
+		DataInputStream entree = new DataInputStream(new FileInputStream(fichier));
+		try {
+			return entree.readInt() == SolutionBinaire.MAGIQUE;
+		} catch (EOFException e) {
+			return false;
+		} finally {
+			entree.close();
+		}
+	}
+	
+	/**
+	 * Lit le bloc suivant
+	 * @return faux à la fin du fichier
+	 */
+	public boolean blocSuivant() throws IOException {
+		int debut;
+		try {
+			debut = entree.readInt();
+		} catch (EOFException e) {
+			return false;
+		}
+		try {
+			int jours = entree.readInt();
+			if(jours != nbJours || equipes == null) {
+				int nbTraces = jours * EDF.NB_TRACES_JOUR;
+				equipes = new int[nbEquipes][nbTraces];
+				formateurs = new int[nbFormateurs][nbTraces];
+				salles = new int[nbSalles][nbTraces];
+				semaines = new int[nbEquipes][nbFormations][jours / 7];
+				octets = new byte[nbTraces];
+			}
+			jourDebut = debut;
+			nbJours = jours;
+			lire(equipes);
+			lire(formateurs);
+			lire(salles);
+			for (int[][] semainesEquipe : semaines) {
+				lire(semainesEquipe);
+			}
+		} catch (EOFException e) {
+			throw new IOException(fichier+" : bloc du jour "+debut+" incomplet");
+		}
+		return true;
+	}
+	
+	private void lire(int[][] planning) throws IOException {
+		for (int[] ligne : planning) {
+			entree.readFully(octets, 0, ligne.length);
+			for (int j = 0; j < ligne.length; j++) {
+				ligne[j] = (octets[j] & 0xFF) - 1;
+			}
+		}
+	}
+	
+	/**
+	 * Écrit tous les blocs restants dans une autre sortie, par exemple au format texte
+	 * @return le nombre de blocs copiés
+	 */
+	public int copier(SortieSolution sortie) throws IOException {
+		int nbBlocs = 0;
+		while(blocSuivant()) {
+			sortie.ecrire(jourDebut, nbJours, equipes, formateurs, salles, semaines);
+			nbBlocs++;
+		}
+		return nbBlocs;
+	}
+	
+	public void fermer() throws IOException {
+		entree.close();
+	}
+	
+	public int getJourDebut() {
+		return jourDebut;
+	}
+	
+	public int getNbJours() {
+		return nbJours;
+	}
+	
+	public int[][] getEquipes() {
+		return equipes;
+	}
+	
+	public int[][] getFormateurs() {
+		return formateurs;
+	}
+	
+	public int[][] getSalles() {
+		return salles;
+	}
+	
+	public int[][][] getSemaines() {
+		return semaines;
+	}
+
+}
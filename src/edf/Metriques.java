@@ -0,0 +1,265 @@
+package edf;
+
+import java.io.FileWriter;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.chocosolver.solver.ResolutionPolicy;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.loop.monitors.IMonitorInitialize;
+import org.chocosolver.solver.search.measure.IMeasures;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Les métriques du solveur en cours de résolution (noeuds, échecs, backtracks, redémarrages,
+ * solutions, objectif et borne, temps de construction, de propagation initiale et de résolution, tas),
+ * exposées en JMX (edf:type=Metriques), en texte sur http://localhost:port/metriques
+ * et écrites en lignes JSON dans un fichier à intervalle régulier.
+ * Les compteurs de Choco sont lus à la demande, sans moniteur sur chaque noeud :
+ * le coût pendant la recherche est nul, les valeurs lues depuis un autre thread sont approchées.
+ * Les métriques suivent le dernier modèle construit (voir suivre()).
+ */
+public class Metriques implements MetriquesMBean, IMonitorInitialize {
+	
+	/** Le nom JMX des métriques */
+	private static final String NOM_JMX = "edf:type=Metriques";
+	
+	/** Les métriques démarrées, null si elles ne le sont pas */
+	private static Metriques metriques;
+	
+	/** Le modèle suivi */
+	private volatile EDF edf;
+	
+	private volatile long debutPropagation;
+	
+	private volatile long tempsPropagationRacine;
+	
+	private HttpServer serveur;
+	
+	private ScheduledExecutorService ecrivain;
+	
+	private PrintWriter json;
+	
+	private Metriques() {
+	}
+	
+	/**
+	 * Démarre l'exposition des métriques
+	 * @param port le port HTTP local, 0 pour ne pas démarrer le serveur
+	 * @param fichierJson le fichier des lignes JSON, null pour ne pas l'écrire
+	 * @param periode l'intervalle entre deux lignes JSON, en millisecondes
+	 */
+	public static synchronized Metriques demarrer(int port, String fichierJson, long periode) throws Exception {
+		if(metriques != null) {
+			return metriques;
+		}
+		Metriques m = new Metriques();
+		ManagementFactory.getPlatformMBeanServer().registerMBean(m, new ObjectName(NOM_JMX));
+		
+		if(port > 0) {
+			m.serveur = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+			m.serveur.createContext("/metriques", echange -> {
+				byte[] reponse = m.texte().getBytes(StandardCharsets.UTF_8);
+				echange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+				echange.sendResponseHeaders(200, reponse.length);
+				OutputStream corps = echange.getResponseBody();
+				corps.write(reponse);
+				corps.close();
+			});
+			// Les requêtes sont servies par un thread démon, qui ne retient pas la fin de la JVM
+			m.serveur.setExecutor(Executors.newSingleThreadExecutor(r -> {
+				Thread t = new Thread(r, "metriques-http");
+				t.setDaemon(true);
+				return t;
+			}));
+			m.serveur.start();
+		}
+		
+		if(fichierJson != null) {
+			m.json = new PrintWriter(new FileWriter(fichierJson, true));
+			m.ecrivain = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread t = new Thread(r, "metriques");
+				t.setDaemon(true);
+				return t;
+			});
+			m.ecrivain.scheduleAtFixedRate(m::ecrireJson, periode, periode, TimeUnit.MILLISECONDS);
+		}
+		metriques = m;
+		return m;
+	}
+	
+	/**
+	 * Arrête l'exposition des métriques, après une dernière ligne JSON
+	 */
+	public static synchronized void arreter() throws Exception {
+		if(metriques == null) {
+			return;
+		}
+		if(metriques.ecrivain != null) {
+			metriques.ecrivain.shutdown();
+			metriques.ecrireJson();
+			metriques.json.close();
+		}
+		if(metriques.serveur != null) {
+			metriques.serveur.stop(0);
+		}
+		ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(NOM_JMX));
+		metriques = null;
+	}
+	
+	/**
+	 * Les métriques suivent désormais ce modèle, si elles sont démarrées
+	 */
+	public static synchronized void suivre(EDF edf) {
+		if(metriques != null) {
+			metriques.edf = edf;
+			metriques.tempsPropagationRacine = 0;
+			edf.getSolver().plugMonitor(metriques);
+		}
+	}
+	
+	/**
+	 * Les métriques au format texte, une par ligne : "edf_noeuds 1234"
+	 */
+	public String texte() {
+		StringBuilder texte = new StringBuilder();
+		texte.append("edf_noeuds ").append(getNoeuds()).append('\n');
+		texte.append("edf_echecs ").append(getEchecs()).append('\n');
+		texte.append("edf_backtracks ").append(getBacktracks()).append('\n');
+		texte.append("edf_redemarrages ").append(getRedemarrages()).append('\n');
+		texte.append("edf_solutions ").append(getSolutions()).append('\n');
+		if(getObjectif() != null) texte.append("edf_objectif ").append(getObjectif()).append('\n');
+		if(getBorneObjectif() != null) texte.append("edf_borne_objectif ").append(getBorneObjectif()).append('\n');
+		texte.append("edf_temps_construction_ms ").append(getTempsConstruction()).append('\n');
+		texte.append("edf_temps_propagation_racine_ms ").append(getTempsPropagationRacine()).append('\n');
+		texte.append("edf_temps_resolution_ms ").append(getTempsResolution()).append('\n');
+		texte.append("edf_memoire_tas_octets ").append(getMemoireTas()).append('\n');
+		return texte.toString();
+	}
+	
+	/**
+	 * Les métriques sur une ligne JSON
+	 */
+	public String json() {
+		return "{\"horodatage\":"+System.currentTimeMillis()
+			+",\"noeuds\":"+getNoeuds()
+			+",\"echecs\":"+getEchecs()
+			+",\"backtracks\":"+getBacktracks()
+			+",\"redemarrages\":"+getRedemarrages()
+			+",\"solutions\":"+getSolutions()
+			+",\"objectif\":"+getObjectif()
+			+",\"borneObjectif\":"+getBorneObjectif()
+			+",\"tempsConstruction\":"+getTempsConstruction()
+			+",\"tempsPropagationRacine\":"+getTempsPropagationRacine()
+			+",\"tempsResolution\":"+getTempsResolution()
+			+",\"memoireTas\":"+getMemoireTas()+"}";
+	}
+	
+	private synchronized void ecrireJson() {
+		if(edf != null) {
+			json.println(json());
+			json.flush();
+		}
+	}
+	
+	private IMeasures mesures() {
+		EDF suivi = edf;
+		return suivi == null ? null : suivi.getSolver().getMeasures();
+	}
+	
+	@Override
+	public void beforeInitialize() {
+		debutPropagation = System.nanoTime();
+	}
+	
+	@Override
+	public void afterInitialize() {
+		tempsPropagationRacine = (System.nanoTime() - debutPropagation) / 1000000;
+	}
+	
+	@Override
+	public long getNoeuds() {
+		IMeasures mesures = mesures();
+		return mesures == null ? 0 : mesures.getNodeCount();
+	}
+	
+	@Override
+	public long getEchecs() {
+		IMeasures mesures = mesures();
+		return mesures == null ? 0 : mesures.getFailCount();
+	}
+	
+	@Override
+	public long getBacktracks() {
+		IMeasures mesures = mesures();
+		return mesures == null ? 0 : mesures.getBackTrackCount();
+	}
+	
+	@Override
+	public long getRedemarrages() {
+		IMeasures mesures = mesures();
+		return mesures == null ? 0 : mesures.getRestartCount();
+	}
+	
+	@Override
+	public long getSolutions() {
+		IMeasures mesures = mesures();
+		return mesures == null ? 0 : mesures.getSolutionCount();
+	}
+	
+	@Override
+	public Number getObjectif() {
+		IMeasures mesures = mesures();
+		if(mesures == null || !mesures.hasObjective() || mesures.getSolutionCount() == 0) {
+			return null;
+		}
+		return mesures.getBestSolutionValue();
+	}
+	
+	@Override
+	public Number getBorneObjectif() {
+		IMeasures mesures = mesures();
+		if(mesures == null || !mesures.hasObjective()) {
+			return null;
+		}
+		return mesures.getBoundsManager().getPolicy() == ResolutionPolicy.MAXIMIZE
+				? mesures.getBoundsManager().getBestUB() : mesures.getBoundsManager().getBestLB();
+	}
+	
+	@Override
+	public long getTempsConstruction() {
+		EDF suivi = edf;
+		return suivi == null ? 0 : suivi.getTempsConstruction();
+	}
+	
+	@Override
+	public long getTempsPropagationRacine() {
+		return tempsPropagationRacine;
+	}
+	
+	@Override
+	public long getTempsResolution() {
+		EDF suivi = edf;
+		if(suivi == null) {
+			return 0;
+		}
+		Solver solver = suivi.getSolver();
+		return solver.getMeasures().getTimeCountInNanoSeconds() / 1000000;
+	}
+	
+	@Override
+	public long getMemoireTas() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+}
@@ -0,0 +1,36 @@
+package edf;
+
+/**
+ * Les métriques du solveur exposées en JMX (voir Metriques)
+ */
+public interface MetriquesMBean {
+	
+	long getNoeuds();
+	
+	long getEchecs();
+	
+	long getBacktracks();
+	
+	long getRedemarrages();
+	
+	long getSolutions();
+	
+	/** La meilleure valeur de l'objectif trouvée, null sans objectif ou sans solution */
+	Number getObjectif();
+	
+	/** La borne de l'objectif (supérieure en maximisation, inférieure en minimisation), null sans objectif */
+	Number getBorneObjectif();
+	
+	/** Le temps de construction du modèle, en millisecondes */
+	long getTempsConstruction();
+	
+	/** Le temps de la propagation initiale, en millisecondes */
+	long getTempsPropagationRacine();
+	
+	/** Le temps de résolution écoulé, en millisecondes */
+	long getTempsResolution();
+	
+	/** L'occupation du tas, en octets */
+	long getMemoireTas();
+	
+}
@@ -0,0 +1,113 @@
+package edf;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Campagne de passage à l'échelle : pour chaque facteur d'échelle, une instance synthétique
+ * de facteur x (14 équipes, 40 formateurs, 17 salles) est générée puis résolue avec un temps limite.
+ * Ses besoins tiennent chacun dans une semaine (GenerateurInstance.BESOINS_SEMAINE) : la faisabilité
+ * ne dépend pas du découpage de l'horizon en semaines.
+ * Le temps de construction, le temps de résolution, la mémoire et la faisabilité de chaque taille
+ * sont écrits dans le fichier echelle.csv du répertoire des instances.
+ */
+public class MiseAEchelle {
+	
+	/** Le répertoire dans lequel les instances synthétiques sont générées */
+	private static final String REPERTOIRE = "./data/synthetique/";
+	
+	private int nbJours;
+	
+	private int tempsMax;
+	
+	private double densiteConges;
+	
+	private double rareteSalles;
+	
+	private long graine;
+	
+	/**
+	 * @param nbJours l'horizon de chaque instance
+	 * @param tempsMax le temps limite de résolution de chaque instance, en secondes
+	 */
+	public MiseAEchelle(int nbJours, int tempsMax, double densiteConges, double rareteSalles, long graine) {
+		this.nbJours = nbJours;
+		this.tempsMax = tempsMax;
+		this.densiteConges = densiteConges;
+		this.rareteSalles = rareteSalles;
+		this.graine = graine;
+	}
+	
+	public void go(int[] facteurs) throws Exception {
+		new File(REPERTOIRE).mkdirs();
+		PrintWriter writer = new PrintWriter(REPERTOIRE+"echelle.csv", "UTF-8");
+		String entete = "Equipes;Formateurs;Salles;Jours;Construction (ms);Octets construction;Resolution (ms);Memoire max (octets);Faisable";
+		writer.println(entete);
+		System.out.println(entete);
+		
+		try {
+			for (int facteur : facteurs) {
+				int nbEquipes = 14 * facteur;
+				int nbFormateurs = 40 * facteur;
+				int nbSalles = 17 * facteur;
+				String repertoire = REPERTOIRE+nbEquipes+"x"+nbFormateurs+"x"+nbSalles+"x"+nbJours+"/";
+				new GenerateurInstance(nbEquipes, nbFormateurs, nbSalles, nbJours, GenerateurInstance.BESOINS_SEMAINE, densiteConges, rareteSalles, graine).ecrire(repertoire);
+				
+				System.gc();
+				for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+					pool.resetPeakUsage();
+				}
+				
+				EDF.chargerInstance(repertoire);
+				EDF edf;
+				try {
+					edf = new EDF(0, nbJours, nbJours, nbJours, null);
+				} catch (InstanceInfaisable e) {
+					// Données rejetées par VerificationCapacites : la taille est infaisable, la campagne continue.
+					// Les autres erreurs (fichiers, lecture) arrêtent la campagne
+					System.out.println(e.getMessage());
+					String ligne = nbEquipes+";"+nbFormateurs+";"+nbSalles+";"+nbJours+";;;;"+memoireMax()+";non";
+					writer.println(ligne);
+					writer.flush();
+					System.out.println(ligne);
+					continue;
+				}
+				edf.configurerRecherche(Strategie.ACTIVITE, graine);
+				edf.getSolver().limitTime(tempsMax+"s");
+				
+				long debut = System.currentTimeMillis();
+				boolean trouve = edf.getSolver().solve();
+				long tempsResolution = System.currentTimeMillis() - debut;
+				
+				// Sans solution, le problème n'est prouvé infaisable que si la recherche n'a pas été interrompue
+				String faisable = trouve ? "oui" : edf.getSolver().isStopCriterionMet() ? "inconnu" : "non";
+				
+				String ligne = nbEquipes+";"+nbFormateurs+";"+nbSalles+";"+nbJours+";"+edf.getTempsConstruction()+";"+edf.getOctetsConstruction()
+					+";"+tempsResolution+";"+memoireMax()+";"+faisable;
+				writer.println(ligne);
+				writer.flush();
+				System.out.println(ligne);
+			}
+		} finally {
+			writer.close();
+			EDF.chargerInstance(EDF.REPERTOIRE_DONNEES);
+		}
+	}
+	
+	/**
+	 * Le pic d'occupation du tas depuis la dernière remise à zéro
+	 */
+	private static long memoireMax() {
+		long octets = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP) {
+				octets += pool.getPeakUsage().getUsed();
+			}
+		}
+		return octets;
+	}
+
+}
@@ -0,0 +1,81 @@
+package edf;
+
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.limits.FailCounter;
+import org.chocosolver.solver.search.loop.lns.INeighborFactory;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Optimisation à tout moment de l'objectif des traces 1 et 5 (reduirutilisationtraces1et5) :
+ * une première solution est cherchée, puis améliorée par recherche à grand voisinage (LNS)
+ * en alternant des voisinages sur les équipes, les semaines et les formateurs.
+ * Chaque solution améliorante est écrite dès qu'elle est trouvée, jusqu'à la fin du temps imparti.
+ */
+public class Optimisation {
+	
+	/** Le nombre d'échecs après lequel un voisinage est abandonné pour le suivant */
+	private static final int ECHECS_PAR_VOISINAGE = 500;
+	
+	/** Le temps imparti, en secondes */
+	private int tempsMax;
+	
+	private Strategie strategie;
+	
+	private long graine;
+	
+	public Optimisation(int tempsMax, Strategie strategie, long graine) {
+		this.tempsMax = tempsMax;
+		this.strategie = strategie;
+		this.graine = graine;
+	}
+	
+	/**
+	 * @return le meilleur planning trouvé dans le temps imparti, null si aucun
+	 */
+	public EDF go() throws Exception {
+		EDF edf = new EDF();
+		IntVar objectif = edf.reduirutilisationtraces1et5();
+		int borne = borneSuperieure(edf);
+		edf.configurerRecherche(strategie, graine);
+		
+		Solver solver = edf.getSolver();
+		solver.setLNS(INeighborFactory.sequencer(
+				new VoisinagePlanning(VoisinagePlanning.Type.EQUIPES, edf, 1, graine),
+				new VoisinagePlanning(VoisinagePlanning.Type.SEMAINES, edf, 1, graine),
+				new VoisinagePlanning(VoisinagePlanning.Type.FORMATEURS, edf, 2, graine)),
+				new FailCounter(solver.getModel(), ECHECS_PAR_VOISINAGE));
+		solver.limitTime(tempsMax+"s");
+		
+		long debut = System.currentTimeMillis();
+		int nbSolutions = 0;
+		int meilleur = -1;
+		while(solver.solve()) {
+			nbSolutions++;
+			meilleur = objectif.getValue();
+			edf.printSolution();
+			System.out.println("Solution "+nbSolutions+" à "+(System.currentTimeMillis() - debut)+" ms : objectif = "+meilleur
+					+" - borne = "+borne+" - écart = "+String.format("%.1f", 100.0 * (borne - meilleur) / Math.max(1, borne))+" %");
+		}
+		
+		if(nbSolutions == 0) {
+			System.out.println("Aucune solution en "+tempsMax+" s");
+			return null;
+		}
+		System.out.println("Meilleur objectif en "+tempsMax+" s : "+meilleur+" ("+nbSolutions+" solutions)");
+		return edf;
+	}
+	
+	/**
+	 * Une borne supérieure de l'objectif : le nombre de traces 1 et 5 des équipes qui peuvent rester sans cours
+	 */
+	private int borneSuperieure(EDF edf) {
+		int borne = 0;
+		for (IntVar[] planning : edf.getEquipes()) {
+			for (IntVar trace : edf.getTraces1et5(planning)) {
+				if(trace.contains(EDF.PAS_DE_COURS)) borne++;
+			}
+		}
+		return borne;
+	}
+
+}
@@ -0,0 +1,302 @@
+package edf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Planification d'une année en cycles de quelques mois (comme les cycles 2 et 3 des fichiers de sortie),
+ * résolus en parallèle.
+ * Par défaut, les besoins de BesoinsFormations.csv sont ceux de l'année : chaque formation d'une équipe est
+ * attribuée entière à un cycle (voir repartir()), et chaque cycle reçoit dans son EtatHorizon les besoins qui
+ * lui sont attribués. Avec besoinsParCycle, les besoins sont ceux de chaque cycle, tous satisfaits dans chacun.
+ * Les cycles partagent aussi le budget annuel de NB_MAX_TRAVAIL_FORMATEUR journées de chaque formateur :
+ * - en parallèle, chaque cycle reçoit une part du budget proportionnelle à sa durée, la même pour tous les formateurs
+ * (ils sont considérés comme ayant déjà travaillé le reste de leur budget, l'écart du cycle est donc inchangé) ;
+ * - à la réconciliation, les journées réellement travaillées dans chaque cycle sont additionnées, et les cycles
+ * qui n'ont pas été résolus le sont un par un, dans l'ordre, à partir des journées réelles de l'année : ils
+ * reçoivent les besoins restants des équipes, et chacun peut laisser aux cycles non résolus suivants ce qu'il
+ * ne planifie pas ;
+ * - enfin, si l'écart annuel entre formateurs dépasse NB_MAX_DIF_ENTRE_FORMS, le dernier cycle est résolu
+ * à nouveau avec les journées réelles des autres cycles, pour rééquilibrer l'année.
+ * Les cycles commencent un lundi : les semaines des formations ne chevauchent deux cycles que lorsqu'un cycle
+ * non résolu transmet une formation commencée au suivant.
+ */
+public class PlanificationAnnuelle {
+	
+	/** L'instance planifiée, la même pour tous les cycles */
+	private Instance instance;
+	
+	private int nbJoursAnnee;
+	
+	private int nbCycles;
+	
+	private int nbTravailleurs;
+	
+	/** Le temps imparti à chaque résolution d'un cycle, en secondes */
+	private int tempsMax;
+	
+	private Strategie strategie;
+	
+	/** Vrai si les besoins des fichiers sont ceux de chaque cycle, faux s'ils sont ceux de l'année */
+	private boolean besoinsParCycle;
+	
+	/** Le premier jour et le nombre de jours de chaque cycle */
+	private int[] debuts;
+	
+	private int[] longueurs;
+	
+	/**
+	 * @param nbJoursAnnee le nombre de jours de l'année, depuis START_DATE
+	 * @param nbCycles le nombre de cycles, de semaines entières (le dernier prend les jours restants)
+	 * @param nbTravailleurs le nombre de cycles résolus en même temps
+	 * @param besoinsParCycle vrai si les besoins des fichiers sont à satisfaire dans chaque cycle
+	 */
+	public PlanificationAnnuelle(int nbJoursAnnee, int nbCycles, int nbTravailleurs, int tempsMax, Strategie strategie, boolean besoinsParCycle) throws Exception {
+		this.instance = EDF.getInstanceCourante();
+		this.nbJoursAnnee = nbJoursAnnee;
+		this.nbCycles = nbCycles;
+		this.nbTravailleurs = nbTravailleurs;
+		this.tempsMax = tempsMax;
+		this.strategie = strategie;
+		this.besoinsParCycle = besoinsParCycle;
+		
+		int nbSemaines = nbJoursAnnee / 7;
+		debuts = new int[nbCycles];
+		longueurs = new int[nbCycles];
+		for (int c = 0; c < nbCycles; c++) {
+			debuts[c] = nbSemaines * c / nbCycles * 7;
+			longueurs[c] = c == nbCycles - 1 ? nbJoursAnnee - debuts[c] : nbSemaines * (c + 1) / nbCycles * 7 - debuts[c];
+		}
+	}
+	
+	/**
+	 * Résout tous les cycles et écrit l'année dans la sortie des solutions (voir EDF.ouvrirSortie())
+	 * @return true si toute l'année a été planifiée
+	 */
+	public boolean go() throws Exception {
+		long debut = System.currentTimeMillis();
+		int nbFormateurs = instance.getNbFormateurs();
+		
+		// Les besoins de l'année, lus par un modèle des seules équipes sur la première semaine de l'année
+		EtatHorizon besoinsAnnee = null;
+		int[][] attribution = null;
+		if(!besoinsParCycle) {
+			int nbJoursLecture = Math.min(7, nbJoursAnnee);
+			besoinsAnnee = new EDF(instance, 0, nbJoursLecture, nbJoursLecture, nbJoursAnnee, null, true).getEtat();
+			attribution = repartir(besoinsAnnee);
+		}
+		
+		// 1. Les cycles en parallèle, chacun avec ses besoins et sa part du budget annuel
+		ExecutorService executeur = Executors.newFixedThreadPool(nbTravailleurs);
+		ArrayList<Future<EDF>> resolutions = new ArrayList<Future<EDF>>();
+		for (int c = 0; c < nbCycles; c++) {
+			final int cycle = c;
+			int part = EDF.NB_MAX_TRAVAIL_FORMATEUR * longueurs[c] / nbJoursAnnee;
+			int[] dejaTravaillees = new int[nbFormateurs];
+			Arrays.fill(dejaTravaillees, EDF.NB_MAX_TRAVAIL_FORMATEUR - part);
+			EtatHorizon etat = besoinsParCycle ? EtatHorizon.debutCycle(dejaTravaillees) : besoinsCycles(besoinsAnnee, attribution, c, c + 1, dejaTravaillees);
+			resolutions.add(executeur.submit(() -> resoudre(cycle, etat, longueurs[cycle], "budget "+part+" journées")));
+		}
+		EDF[] cycles = new EDF[nbCycles];
+		try {
+			for (int c = 0; c < nbCycles; c++) {
+				cycles[c] = resolutions.get(c).get();
+			}
+		} finally {
+			executeur.shutdownNow();
+		}
+		System.out.println("Cycles en parallèle : "+(System.currentTimeMillis() - debut)+" ms");
+		
+		// 2. La réconciliation : les journées de l'année et les besoins restants des équipes après les cycles résolus
+		EtatHorizon reste = besoinsParCycle ? EtatHorizon.debutCycle(new int[nbFormateurs]) 
+				: new EtatHorizon(besoinsAnnee.getTracesRestantes(), besoinsAnnee.getSemainesRestantes(), new int[nbFormateurs]);
+		for (int c = 0; c < nbCycles; c++) {
+			if(cycles[c] != null) {
+				reste = ajouter(cycles[c], reste);
+			}
+		}
+		
+		// Les cycles non résolus, dans l'ordre. Avec les besoins de l'année, des cycles non résolus qui se suivent
+		// forment un horizon glissant sur leurs besoins : chacun transmet au suivant ce qu'il ne planifie pas, 
+		// le dernier doit tout planifier
+		EtatHorizon transmis = null;
+		for (int c = 0; c < nbCycles; c++) {
+			if(cycles[c] == null) {
+				int fin = c + 1;
+				int nbJoursRestants = longueurs[c];
+				while(!besoinsParCycle && fin < nbCycles && cycles[fin] == null) {
+					nbJoursRestants += longueurs[fin++];
+				}
+				EtatHorizon etat = reste;
+				if(transmis != null) {
+					etat = transmis;
+				} else if(!besoinsParCycle) {
+					etat = besoinsCycles(reste, attribution, c, fin, reste.getJourneesTravaillees());
+				}
+				System.out.println("Réconciliation du cycle "+(c+1)+" : "+(besoinsParCycle ? "" : etat+", ")+"de "+min(etat.getJourneesTravaillees())
+						+" à "+max(etat.getJourneesTravaillees())+" journées déjà travaillées par formateur");
+				cycles[c] = resoudre(c, etat, nbJoursRestants, "réconciliation");
+				if(cycles[c] == null) {
+					System.out.println("Cycle "+(c+1)+" : aucune solution, l'année n'est pas planifiée");
+					return false;
+				}
+				reste = ajouter(cycles[c], reste);
+				transmis = nbJoursRestants > longueurs[c] ? cycles[c].fixer() : null;
+			}
+		}
+		
+		// 3. L'équilibre de l'année : le dernier cycle est résolu à nouveau avec les journées réelles des autres cycles
+		int[] journeesAnnee = reste.getJourneesTravaillees();
+		if(nbCycles > 1 && max(journeesAnnee) - min(journeesAnnee) >= EDF.NB_MAX_DIF_ENTRE_FORMS) {
+			int c = nbCycles - 1;
+			EtatHorizon avant = cycles[c].getEtat();
+			int[] apres = cycles[c].fixer().getJourneesTravaillees();
+			int[] autresCycles = new int[nbFormateurs];
+			for (int k = 0; k < nbFormateurs; k++) {
+				autresCycles[k] = journeesAnnee[k] - (apres[k] - avant.getJourneesTravaillees()[k]);
+			}
+			System.out.println("Équilibre de l'année : de "+min(journeesAnnee)+" à "+max(journeesAnnee)+" journées par formateur, cycle "+(c+1)+" résolu à nouveau");
+			EDF equilibre = resoudre(c, new EtatHorizon(avant.getTracesRestantes(), avant.getSemainesRestantes(), autresCycles), longueurs[c], "équilibre");
+			if(equilibre == null) {
+				System.out.println("Cycle "+(c+1)+" : aucune solution, l'écart annuel entre formateurs n'est pas respecté");
+				return false;
+			}
+			cycles[c] = equilibre;
+			journeesAnnee = equilibre.fixer().getJourneesTravaillees();
+		}
+		
+		SortieSolution sortie = EDF.ouvrirSortie();
+		for (int c = 0; c < nbCycles; c++) {
+			cycles[c].ecrireSolution(sortie, longueurs[c]);
+		}
+		sortie.fermer();
+		
+		System.out.println("Année planifiée en "+(System.currentTimeMillis() - debut)+" ms : de "+min(journeesAnnee)+" à "+max(journeesAnnee)
+				+" journées par formateur (maximum "+EDF.NB_MAX_TRAVAIL_FORMATEUR+")");
+		return true;
+	}
+	
+	/**
+	 * Attribue chaque formation de chaque équipe à un seul cycle, pour que ses semaines ne chevauchent pas deux cycles :
+	 * les formations sont prises de la plus longue à la plus courte, chacune dans le cycle où la charge de l'équipe,
+	 * rapportée à la durée du cycle, reste la plus faible
+	 * @return le cycle de chaque équipe (lignes) et formation (colonnes), -1 pour une formation sans traces
+	 */
+	private int[][] repartir(EtatHorizon besoinsAnnee) {
+		double[][] traces = besoinsAnnee.getTracesRestantes();
+		int[][] attribution = new int[traces.length][];
+		for (int i = 0; i < traces.length; i++) {
+			double[] tracesEquipe = traces[i];
+			Integer[] ordre = new Integer[tracesEquipe.length];
+			for (int j = 0; j < ordre.length; j++) {
+				ordre[j] = j;
+			}
+			Arrays.sort(ordre, (a, b) -> Double.compare(tracesEquipe[b], tracesEquipe[a]));
+			
+			attribution[i] = new int[tracesEquipe.length];
+			Arrays.fill(attribution[i], -1);
+			double[] charges = new double[nbCycles];
+			for (int j : ordre) {
+				if(tracesEquipe[j] <= 0) continue;
+				int meilleur = 0;
+				for (int c = 1; c < nbCycles; c++) {
+					if((charges[c] + tracesEquipe[j]) / longueurs[c] < (charges[meilleur] + tracesEquipe[j]) / longueurs[meilleur]) {
+						meilleur = c;
+					}
+				}
+				charges[meilleur] += tracesEquipe[j];
+				attribution[i][j] = meilleur;
+			}
+		}
+		return attribution;
+	}
+	
+	/**
+	 * Les besoins attribués aux cycles premier à fin (exclu), avec les journées déjà travaillées données
+	 */
+	private static EtatHorizon besoinsCycles(EtatHorizon besoins, int[][] attribution, int premier, int fin, int[] journeesTravaillees) {
+		double[][] tracesRestantes = new double[attribution.length][];
+		int[][] semainesRestantes = new int[attribution.length][];
+		for (int i = 0; i < attribution.length; i++) {
+			tracesRestantes[i] = new double[attribution[i].length];
+			semainesRestantes[i] = new int[attribution[i].length];
+			for (int j = 0; j < attribution[i].length; j++) {
+				if(attribution[i][j] >= premier && attribution[i][j] < fin) {
+					tracesRestantes[i][j] = besoins.getTracesRestantes()[i][j];
+					semainesRestantes[i][j] = besoins.getSemainesRestantes()[i][j];
+				}
+			}
+		}
+		return new EtatHorizon(tracesRestantes, semainesRestantes, journeesTravaillees);
+	}
+	
+	/**
+	 * Résout le cycle c à partir de l'état donné
+	 * @param nbJoursRestants les jours jusqu'à la fin de l'horizon : au-delà de la durée du cycle, 
+	 * une partie des besoins peut être laissée aux cycles suivants
+	 * @return le modèle du cycle, sur sa solution, null sans solution dans le temps imparti ou si les données sont infaisables
+	 */
+	private EDF resoudre(int c, EtatHorizon etat, int nbJoursRestants, String libelle) throws Exception {
+		long debut = System.currentTimeMillis();
+		EDF edf;
+		try {
+			edf = new EDF(instance, debuts[c], longueurs[c], longueurs[c], nbJoursRestants, etat, false);
+		} catch (Exception e) {
+			System.out.println("Cycle "+(c+1)+" : "+e.getMessage());
+			return null;
+		}
+		edf.configurerRecherche(strategie, c);
+		edf.getSolver().limitTime(tempsMax+"s");
+		boolean resolu = edf.getSolver().solve();
+		System.out.println("Cycle "+(c+1)+" (jours "+debuts[c]+" à "+(debuts[c] + longueurs[c])+", "+libelle+") : "
+				+(resolu ? "résolu" : "aucune solution")+" en "+(System.currentTimeMillis() - debut)+" ms");
+		return resolu ? edf : null;
+	}
+	
+	/**
+	 * Retire de l'état de l'année ce que le cycle résolu a planifié : ses traces et ses semaines des besoins restants
+	 * des équipes, et ajoute ses journées à celles de chaque formateur
+	 */
+	private static EtatHorizon ajouter(EDF cycle, EtatHorizon annee) {
+		EtatHorizon avant = cycle.getEtat();
+		EtatHorizon apres = cycle.fixer();
+		int[] journeesTravaillees = annee.getJourneesTravaillees().clone();
+		for (int k = 0; k < journeesTravaillees.length; k++) {
+			journeesTravaillees[k] += apres.getJourneesTravaillees()[k] - avant.getJourneesTravaillees()[k];
+		}
+		if(annee.isDebutCycle()) {
+			return EtatHorizon.debutCycle(journeesTravaillees);
+		}
+		double[][] tracesRestantes = new double[annee.getTracesRestantes().length][];
+		int[][] semainesRestantes = new int[annee.getSemainesRestantes().length][];
+		for (int i = 0; i < tracesRestantes.length; i++) {
+			tracesRestantes[i] = annee.getTracesRestantes()[i].clone();
+			semainesRestantes[i] = annee.getSemainesRestantes()[i].clone();
+			for (int j = 0; j < tracesRestantes[i].length; j++) {
+				tracesRestantes[i][j] -= avant.getTracesRestantes()[i][j] - apres.getTracesRestantes()[i][j];
+				semainesRestantes[i][j] -= avant.getSemainesRestantes()[i][j] - apres.getSemainesRestantes()[i][j];
+			}
+		}
+		return new EtatHorizon(tracesRestantes, semainesRestantes, journeesTravaillees);
+	}
+	
+	private static int min(int[] journees) {
+		int min = Integer.MAX_VALUE;
+		for (int j : journees) {
+			min = Math.min(min, j);
+		}
+		return min;
+	}
+	
+	private static int max(int[] journees) {
+		int max = 0;
+		for (int j : journees) {
+			max = Math.max(max, j);
+		}
+		return max;
+	}
+
+}
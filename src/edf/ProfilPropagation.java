@@ -0,0 +1,248 @@
+package edf;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.chocosolver.solver.ICause;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.exception.SolverException;
+import org.chocosolver.solver.propagation.IPropagationEngine;
+import org.chocosolver.solver.propagation.PropagationEngineFactory;
+import org.chocosolver.solver.variables.Variable;
+import org.chocosolver.solver.variables.events.IEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
+
+/**
+ * Le profil de la propagation par famille de contraintes, c'est-à-dire par méthode de EDF
+ * qui les a posées (voir EDF.getFamille()).
+ * Le moteur de propagation par défaut de Choco est enveloppé : chaque modification de domaine
+ * est comptée pour la famille de la contrainte qui l'a causée, et le temps écoulé depuis la
+ * modification précédente lui est attribué. Un appel est une exécution de propagateur qui filtre :
+ * les exécutions sans aucun filtrage ne sont pas visibles une à une, leur temps est compté
+ * pour le propagateur qui filtre ensuite, ou dans la ligne "point fixe" en fin de propagation.
+ * Les modifications relayées par une vue sont comptées pour le propagateur en cours, celles faites
+ * hors propagation (décisions, voisinages LNS) sont comptées pour la recherche.
+ */
+public class ProfilPropagation implements IPropagationEngine {
+	
+	/** La famille des modifications faites par la recherche */
+	private static final String RECHERCHE = "recherche";
+	
+	/** La famille du temps passé après la dernière modification d'une propagation */
+	private static final String POINT_FIXE = "point fixe";
+	
+	/** Les profils de tous les modèles profilés, pour le rapport final */
+	private static final ArrayList<ProfilPropagation> profils = new ArrayList<ProfilPropagation>();
+	
+	/** Les compteurs d'une famille */
+	private static class Compteurs {
+		
+		long appels;
+		
+		long echecs;
+		
+		long modifications;
+		
+		long temps;
+		
+		void ajouter(Compteurs c) {
+			appels += c.appels;
+			echecs += c.echecs;
+			modifications += c.modifications;
+			temps += c.temps;
+		}
+	}
+	
+	/** Le moteur de Choco qui propage réellement */
+	private IPropagationEngine moteur;
+	
+	private EDF edf;
+	
+	/** Les compteurs de chaque famille, dans l'ordre où elles apparaissent */
+	private LinkedHashMap<String, Compteurs> familles = new LinkedHashMap<String, Compteurs>();
+	
+	/** Les compteurs de chaque cause déjà rencontrée, pour ne chercher sa famille qu'une fois */
+	private IdentityHashMap<ICause, Compteurs> causes = new IdentityHashMap<ICause, Compteurs>();
+	
+	/** Vrai pendant une propagation */
+	private boolean enPropagation;
+	
+	private ICause derniereCause;
+	
+	private long dernierInstant;
+	
+	public ProfilPropagation(EDF edf) {
+		this.edf = edf;
+		this.moteur = PropagationEngineFactory.DEFAULT.make(edf.getSolver().getModel());
+		synchronized (profils) {
+			profils.add(this);
+		}
+	}
+	
+	private Compteurs compteurs(String famille) {
+		Compteurs c = familles.get(famille);
+		if(c == null) {
+			c = new Compteurs();
+			familles.put(famille, c);
+		}
+		return c;
+	}
+	
+	private Compteurs compteurs(ICause cause) {
+		Compteurs c = causes.get(cause);
+		if(c == null) {
+			c = compteurs(cause instanceof Propagator ? edf.getFamille((Propagator<?>) cause) : RECHERCHE);
+			causes.put(cause, c);
+		}
+		return c;
+	}
+	
+	@Override
+	public void propagate() throws ContradictionException {
+		enPropagation = true;
+		derniereCause = null;
+		dernierInstant = System.nanoTime();
+		try {
+			moteur.propagate();
+		} catch (ContradictionException e) {
+			Compteurs c = compteurs(e.c);
+			c.echecs++;
+			if(e.c != derniereCause) c.appels++;
+			c.temps += System.nanoTime() - dernierInstant;
+			dernierInstant = System.nanoTime();
+			throw e;
+		} finally {
+			compteurs(POINT_FIXE).temps += System.nanoTime() - dernierInstant;
+			enPropagation = false;
+		}
+	}
+	
+	@Override
+	public void onVariableUpdate(Variable variable, IEventType type, ICause cause) {
+		if(enPropagation && !(cause instanceof Propagator) && derniereCause != null) {
+			// Une vue qui relaie la modification faite par le propagateur en cours
+			compteurs(derniereCause).modifications++;
+			moteur.onVariableUpdate(variable, type, cause);
+			return;
+		}
+		Compteurs c = compteurs(cause);
+		c.modifications++;
+		if(enPropagation) {
+			long instant = System.nanoTime();
+			if(cause != derniereCause) {
+				c.appels++;
+				derniereCause = cause;
+			}
+			c.temps += instant - dernierInstant;
+			dernierInstant = instant;
+		}
+		moteur.onVariableUpdate(variable, type, cause);
+	}
+	
+	/**
+	 * Le rapport de tous les modèles profilés depuis le démarrage : par famille, les appels qui filtrent,
+	 * les échecs, les modifications de domaine et le temps de propagation attribué, par temps décroissant
+	 */
+	public static String rapport() {
+		LinkedHashMap<String, Compteurs> totaux = new LinkedHashMap<String, Compteurs>();
+		long tempsTotal = 0;
+		synchronized (profils) {
+			for (ProfilPropagation profil : profils) {
+				for (Map.Entry<String, Compteurs> famille : profil.familles.entrySet()) {
+					Compteurs total = totaux.get(famille.getKey());
+					if(total == null) {
+						total = new Compteurs();
+						totaux.put(famille.getKey(), total);
+					}
+					total.ajouter(famille.getValue());
+					tempsTotal += famille.getValue().temps;
+				}
+			}
+		}
+		
+		StringBuilder rapport = new StringBuilder();
+		rapport.append(String.format("%-34s %12s %10s %14s %10s %7s%n", "Famille", "Appels", "Echecs", "Modifications", "Temps ms", "Temps"));
+		ArrayList<Map.Entry<String, Compteurs>> lignes = new ArrayList<Map.Entry<String, Compteurs>>(totaux.entrySet());
+		lignes.sort((a, b) -> Long.compare(b.getValue().temps, a.getValue().temps));
+		for (Map.Entry<String, Compteurs> famille : lignes) {
+			Compteurs c = famille.getValue();
+			rapport.append(String.format("%-34s %12d %10d %14d %10d %6.1f%%%n", famille.getKey(), c.appels, c.echecs, c.modifications,
+					c.temps / 1000000, 100.0 * c.temps / Math.max(1, tempsTotal)));
+		}
+		return rapport.toString();
+	}
+	
+	// Délégation au moteur de Choco. IPropagationEngine déclare des paramètres Propagator bruts :
+	// une méthode qui la redéfinit ne peut pas les remplacer par Propagator<?> (même effacement)
+	
+	@Override
+	public void initialize() throws SolverException {
+		moteur.initialize();
+	}
+	
+	@Override
+	public boolean isInitialized() {
+		return moteur.isInitialized();
+	}
+	
+	@Override
+	public void flush() {
+		moteur.flush();
+	}
+	
+	@Override
+	public void reset() {
+		moteur.reset();
+	}
+	
+	@Override
+	public void clear() {
+		moteur.clear();
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void delayedPropagation(Propagator propagator, PropagatorEventType type) throws ContradictionException {
+		moteur.delayedPropagation(propagator, type);
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void onPropagatorExecution(Propagator propagator) {
+		moteur.onPropagatorExecution(propagator);
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void desactivatePropagator(Propagator propagator) {
+		moteur.desactivatePropagator(propagator);
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void dynamicAddition(boolean permanent, Propagator... propagators) throws SolverException {
+		moteur.dynamicAddition(permanent, propagators);
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void updateInvolvedVariables(Propagator propagator) {
+		moteur.updateInvolvedVariables(propagator);
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void propagateOnBacktrack(Propagator propagator) {
+		moteur.propagateOnBacktrack(propagator);
+	}
+	
+	@Override
+	@SuppressWarnings("rawtypes")
+	public void dynamicDeletion(Propagator... propagators) {
+		moteur.dynamicDeletion(propagators);
+	}
+
+}
@@ -0,0 +1,61 @@
+package edf;
+
+/**
+ * Les profils de résolution, appliqués par-dessus la stratégie de recherche (voir EDF.configurerRecherche()) :
+ * les redémarrages (suite de Luby ou géométrique, en nombre d'échecs), l'enregistrement de nogoods
+ * à chaque redémarrage, et l'ordre des variables guidé par les conflits.
+ * Les redémarrages diversifient la recherche en fonction de la graine et des poids appris par la stratégie :
+ * ils coupent la queue des temps de résolution quand les premiers choix sont mauvais.
+ */
+public enum ProfilResolution {
+	
+	/** La stratégie seule (comportement historique) */
+	STANDARD(Redemarrages.AUCUN, false, Conflits.AUCUN),
+	
+	/** Redémarrages selon la suite de Luby */
+	LUBY(Redemarrages.LUBY, false, Conflits.AUCUN),
+	
+	/** Redémarrages selon la suite de Luby, les branches déjà réfutées sont enregistrées comme nogoods */
+	LUBY_NOGOODS(Redemarrages.LUBY, true, Conflits.AUCUN),
+	
+	/** Redémarrages géométriques, avec nogoods */
+	GEOMETRIQUE_NOGOODS(Redemarrages.GEOMETRIQUE, true, Conflits.AUCUN),
+	
+	/** Les variables des derniers conflits sont choisies d'abord (last conflict) */
+	DERNIER_CONFLIT(Redemarrages.AUCUN, false, Conflits.DERNIER),
+	
+	/** Les variables sont ordonnées par leur dernier conflit (conflict ordering search) */
+	ORDRE_CONFLITS(Redemarrages.AUCUN, false, Conflits.ORDRE),
+	
+	/** Redémarrages de Luby avec nogoods, et dernier conflit */
+	LUBY_NOGOODS_DERNIER_CONFLIT(Redemarrages.LUBY, true, Conflits.DERNIER);
+	
+	enum Redemarrages { AUCUN, LUBY, GEOMETRIQUE }
+	
+	enum Conflits { AUCUN, DERNIER, ORDRE }
+	
+	private Redemarrages redemarrages;
+	
+	private boolean nogoods;
+	
+	private Conflits conflits;
+	
+	private ProfilResolution(Redemarrages redemarrages, boolean nogoods, Conflits conflits) {
+		this.redemarrages = redemarrages;
+		this.nogoods = nogoods;
+		this.conflits = conflits;
+	}
+	
+	public Redemarrages getRedemarrages() {
+		return redemarrages;
+	}
+	
+	public boolean isNogoods() {
+		return nogoods;
+	}
+	
+	public Conflits getConflits() {
+		return conflits;
+	}
+
+}
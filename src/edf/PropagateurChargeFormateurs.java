@@ -0,0 +1,274 @@
+package edf;
+
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.tools.ArrayUtils;
+
+/**
+ * Les journées travaillées des formateurs (contraintes # 4 et # 5), en un seul propagateur sur
+ * les plannings de tous les formateurs et leurs nombres de journées travaillées :
+ * - un formateur travaille un jour si une des traces du jour porte une formation (valeur > 0,
+ * une trace NO_DISPONIBLE n'est jamais comptée) ;
+ * - ses journées travaillées sont celles déjà travaillées plus les jours travaillés de l'horizon ;
+ * - l'écart entre le formateur qui travaille le plus et celui qui travaille le moins reste sous ecart.
+ * L'état incrémental est le statut de chaque jour de chaque formateur (non travaillé, possible,
+ * travaillé) et, par formateur, le nombre de jours travaillés et de jours possibles.
+ */
+public class PropagateurChargeFormateurs extends Propagator<IntVar> {
+	
+	private static final int NON_TRAVAILLE = 0;
+	
+	private static final int POSSIBLE = 1;
+	
+	private static final int TRAVAILLE = 2;
+	
+	private int nbFormateurs;
+	
+	private int nbJours;
+	
+	/** Le nombre de variables de traces, suivies des variables de journées travaillées */
+	private int nbTraces;
+	
+	private int[] journeesDejaTravaillees;
+	
+	/** La différence de journées travaillées entre deux formateurs doit rester strictement inférieure à ecart */
+	private int ecart;
+	
+	/** Le statut de chaque jour de chaque formateur */
+	private IStateInt[][] statuts;
+	
+	/** Le nombre de jours travaillés, et de jours travaillés ou possibles, de chaque formateur */
+	private IStateInt[] travailles;
+	
+	private IStateInt[] possibles;
+	
+	/** Les formateurs à vérifier */
+	private int[] file;
+	
+	private int tailleFile;
+	
+	private boolean[] enFile;
+	
+	/** Vrai si l'équilibre entre les formateurs est à vérifier */
+	private boolean equilibre;
+	
+	/**
+	 * @param formateurs le planning de chaque formateur
+	 * @param journees les journées travaillées de chaque formateur, déjà travaillées comprises
+	 * @param journeesDejaTravaillees les journées déjà travaillées avant l'horizon
+	 * @param ecart la borne stricte de l'écart de journées travaillées entre deux formateurs
+	 */
+	public PropagateurChargeFormateurs(IntVar[][] formateurs, IntVar[] journees, int[] journeesDejaTravaillees, int ecart) {
+		super(ArrayUtils.append(ArrayUtils.flatten(formateurs), journees), PropagatorPriority.LINEAR, true);
+		this.nbFormateurs = formateurs.length;
+		this.nbJours = formateurs[0].length / EDF.NB_TRACES_JOUR;
+		this.nbTraces = nbFormateurs * nbJours * EDF.NB_TRACES_JOUR;
+		this.journeesDejaTravaillees = journeesDejaTravaillees;
+		this.ecart = ecart;
+		
+		statuts = new IStateInt[nbFormateurs][nbJours];
+		travailles = new IStateInt[nbFormateurs];
+		possibles = new IStateInt[nbFormateurs];
+		for (int k = 0; k < nbFormateurs; k++) {
+			for (int d = 0; d < nbJours; d++) {
+				statuts[k][d] = model.getEnvironment().makeInt(POSSIBLE);
+			}
+			travailles[k] = model.getEnvironment().makeInt(0);
+			possibles[k] = model.getEnvironment().makeInt(nbJours);
+		}
+		file = new int[nbFormateurs];
+		enFile = new boolean[nbFormateurs];
+	}
+	
+	@Override
+	public int getPropagationConditions(int vIdx) {
+		return IntEventType.boundAndInst();
+	}
+	
+	@Override
+	public void propagate(int evtmask) throws ContradictionException {
+		if(PropagatorEventType.isFullPropagation(evtmask)) {
+			for (int k = 0; k < nbFormateurs; k++) {
+				for (int d = 0; d < nbJours; d++) {
+					mettreAJourJour(k, d);
+				}
+				ajouter(k);
+			}
+			equilibre = true;
+		}
+		try {
+			while(tailleFile > 0 || equilibre) {
+				while(tailleFile > 0) {
+					int k = file[--tailleFile];
+					enFile[k] = false;
+					verifierFormateur(k);
+				}
+				if(equilibre) {
+					equilibre = false;
+					verifierEquilibre();
+				}
+			}
+		} finally {
+			while(tailleFile > 0) {
+				enFile[file[--tailleFile]] = false;
+			}
+			equilibre = false;
+		}
+	}
+	
+	@Override
+	public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+		if(idxVarInProp < nbTraces) {
+			int k = idxVarInProp / (nbJours * EDF.NB_TRACES_JOUR);
+			int d = (idxVarInProp % (nbJours * EDF.NB_TRACES_JOUR)) / EDF.NB_TRACES_JOUR;
+			// Un jour qui reste possible peut n'avoir plus qu'une trace libre alors qu'il doit être travaillé
+			if(mettreAJourJour(k, d) || (statuts[k][d].get() == POSSIBLE && vars[nbTraces + k].getLB() == journeesDejaTravaillees[k] + possibles[k].get())) {
+				ajouter(k);
+			}
+		} else {
+			ajouter(idxVarInProp - nbTraces);
+			equilibre = true;
+		}
+		forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+	}
+	
+	/**
+	 * Recalcule le statut du jour d du formateur k à partir des bornes de ses traces
+	 * @return vrai si le statut a changé
+	 */
+	private boolean mettreAJourJour(int k, int d) {
+		int ancien = statuts[k][d].get();
+		if(ancien != POSSIBLE) {
+			return false;
+		}
+		int nouveau = NON_TRAVAILLE;
+		for (int t = 0; t < EDF.NB_TRACES_JOUR; t++) {
+			IntVar trace = trace(k, d, t);
+			if(trace.getLB() > EDF.PAS_DE_COURS) {
+				nouveau = TRAVAILLE;
+				break;
+			}
+			if(trace.getUB() > EDF.PAS_DE_COURS) {
+				nouveau = POSSIBLE;
+			}
+		}
+		if(nouveau == ancien) {
+			return false;
+		}
+		statuts[k][d].set(nouveau);
+		if(nouveau == TRAVAILLE) {
+			travailles[k].add(1);
+		} else {
+			possibles[k].add(-1);
+		}
+		return true;
+	}
+	
+	/**
+	 * Les journées du formateur k sont entre ses jours travaillés et ses jours possibles ;
+	 * si elles atteignent l'une de ces bornes, les jours encore possibles sont tous non travaillés, ou tous travaillés
+	 */
+	private void verifierFormateur(int k) throws ContradictionException {
+		IntVar journees = vars[nbTraces + k];
+		int lb = journees.getLB();
+		int ub = journees.getUB();
+		journees.updateBounds(journeesDejaTravaillees[k] + travailles[k].get(), journeesDejaTravaillees[k] + possibles[k].get(), this);
+		if(journees.getLB() != lb || journees.getUB() != ub) {
+			equilibre = true;
+		}
+		
+		if(travailles[k].get() == possibles[k].get()) {
+			return;
+		}
+		if(journees.getUB() == journeesDejaTravaillees[k] + travailles[k].get()) {
+			for (int d = 0; d < nbJours; d++) {
+				if(statuts[k][d].get() == POSSIBLE) {
+					for (int t = 0; t < EDF.NB_TRACES_JOUR; t++) {
+						trace(k, d, t).updateUpperBound(EDF.PAS_DE_COURS, this);
+					}
+					mettreAJourJour(k, d);
+				}
+			}
+		} else if(journees.getLB() == journeesDejaTravaillees[k] + possibles[k].get()) {
+			for (int d = 0; d < nbJours; d++) {
+				if(statuts[k][d].get() == POSSIBLE) {
+					// Le jour doit être travaillé : s'il ne reste qu'une trace qui peut porter une formation, elle la porte
+					IntVar seule = null;
+					int nb = 0;
+					for (int t = 0; t < EDF.NB_TRACES_JOUR; t++) {
+						if(trace(k, d, t).getUB() > EDF.PAS_DE_COURS) {
+							seule = trace(k, d, t);
+							nb++;
+						}
+					}
+					if(nb == 1) {
+						seule.updateLowerBound(EDF.PAS_DE_COURS + 1, this);
+						mettreAJourJour(k, d);
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * L'écart : chaque formateur travaille au moins le plus grand minimum moins l'écart,
+	 * et au plus le plus petit maximum plus l'écart
+	 */
+	private void verifierEquilibre() throws ContradictionException {
+		int maxLB = Integer.MIN_VALUE;
+		int minUB = Integer.MAX_VALUE;
+		for (int k = 0; k < nbFormateurs; k++) {
+			maxLB = Math.max(maxLB, vars[nbTraces + k].getLB());
+			minUB = Math.min(minUB, vars[nbTraces + k].getUB());
+		}
+		for (int k = 0; k < nbFormateurs; k++) {
+			if(vars[nbTraces + k].updateBounds(maxLB - ecart + 1, minUB + ecart - 1, this)) {
+				ajouter(k);
+			}
+		}
+	}
+	
+	private IntVar trace(int k, int d, int t) {
+		return vars[(k * nbJours + d) * EDF.NB_TRACES_JOUR + t];
+	}
+	
+	private void ajouter(int k) {
+		if(!enFile[k]) {
+			enFile[k] = true;
+			file[tailleFile++] = k;
+		}
+	}
+	
+	@Override
+	public ESat isEntailed() {
+		if(!isCompletelyInstantiated()) {
+			return ESat.UNDEFINED;
+		}
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		for (int k = 0; k < nbFormateurs; k++) {
+			int journees = journeesDejaTravaillees[k];
+			for (int d = 0; d < nbJours; d++) {
+				for (int t = 0; t < EDF.NB_TRACES_JOUR; t++) {
+					if(trace(k, d, t).getValue() > EDF.PAS_DE_COURS) {
+						journees++;
+						break;
+					}
+				}
+			}
+			if(journees != vars[nbTraces + k].getValue()) {
+				return ESat.FALSE;
+			}
+			min = Math.min(min, journees);
+			max = Math.max(max, journees);
+		}
+		return max - min < ecart ? ESat.TRUE : ESat.FALSE;
+	}
+
+}
@@ -0,0 +1,449 @@
+package edf;
+
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.delta.IIntDeltaMonitor;
+import org.chocosolver.solver.variables.events.IntEventType;
+import org.chocosolver.solver.variables.events.PropagatorEventType;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.procedure.UnaryIntProcedure;
+import org.chocosolver.util.tools.ArrayUtils;
+
+/**
+ * La contiguïté des formations d'une équipe (contraintes # 6 et # 7), en un seul propagateur
+ * sur la ligne du planning de l'équipe et ses booléens formation/semaine et formation/trace :
+ * - une formation est suivie pendant une semaine si et seulement si une des traces des jours
+ * ouvrés de la semaine porte la formation, et le nombre de ces semaines est limité (ou imposé) ;
+ * - une formation est suivie sur une trace si et seulement si une des traces de même rang
+ * des jours ouvrés porte la formation, et le nombre de ces traces est limité.
+ * L'état incrémental est le nombre de traces de chaque semaine et de chaque rang qui peuvent
+ * encore porter chaque formation, tenu à jour par les valeurs retirées des domaines.
+ * En plus de la décomposition, une semaine ou un rang de trace imposé dont une seule trace
+ * peut encore porter la formation fixe cette trace.
+ * Dans une fenêtre intermédiaire, le nombre de semaines est un maximum, atteint si et seulement si
+ * la formation est terminée dans la fenêtre (les booléens terminees).
+ */
+public class PropagateurContiguite extends Propagator<IntVar> {
+	
+	/** Le nombre de jours ouvrés d'une semaine */
+	private static final int JOURS_OUVRES = 5;
+	
+	/** Le nombre de traces suivies (jours ouvrés des semaines complètes) */
+	private int n;
+	
+	private int nbFormations;
+	
+	private int nbSemaines;
+	
+	/** Le nombre de groupes d'une formation : les semaines, puis les rangs de trace */
+	private int nbGroupes;
+	
+	/** Les traces de chaque groupe, en indices dans vars */
+	private int[][] groupes;
+	
+	/** La semaine et le groupe de rang de chaque trace suivie */
+	private int[] groupeSemaine;
+	
+	private int[] groupeTrace;
+	
+	/** Le booléen de chaque formation et de chaque groupe */
+	private BoolVar[][] booleens;
+	
+	/** Le nombre de traces de chaque groupe qui peuvent encore porter chaque formation */
+	private IStateInt[][] supports;
+	
+	private int[] maxSemaines;
+	
+	/** Vrai si chaque formation doit être suivie exactement maxSemaines semaines */
+	private boolean semainesExactes;
+	
+	/** Si les semaines ne sont pas exactes, vrai pour chaque formation terminée dans la fenêtre : elle y est alors suivie maxSemaines semaines */
+	private BoolVar[] terminees;
+	
+	private int maxTraces;
+	
+	/** Le nombre maximal de sessions d'une formation dans une semaine, et sur un rang de trace */
+	private int maxParSemaine;
+	
+	private int maxParTrace;
+	
+	private IIntDeltaMonitor[] deltas;
+	
+	/** Les vérifications en attente : un couple formation/groupe, ou les comptes d'une formation */
+	private int[] file;
+	
+	private int tailleFile;
+	
+	private boolean[] enFile;
+	
+	private UnaryIntProcedure<Integer> retraits;
+	
+	/**
+	 * @param planning la ligne du planning de l'équipe
+	 * @param semaines les booléens formation/semaine
+	 * @param traces les booléens formation/trace
+	 * @param maxSemaines le nombre de semaines de chaque formation
+	 * @param semainesExactes vrai si ce nombre est imposé, faux s'il est un maximum
+	 * @param terminees si ce nombre est un maximum, le booléen de chaque formation vrai si et seulement si il est atteint
+	 * @param maxTraces le nombre maximal de traces de chaque formation
+	 * @param maxParSemaine le nombre maximal de sessions d'une formation dans une semaine
+	 * @param maxParTrace le nombre maximal de sessions d'une formation sur un même rang de trace
+	 */
+	public PropagateurContiguite(IntVar[] planning, BoolVar[][] semaines, BoolVar[][] traces, int[] maxSemaines, boolean semainesExactes, BoolVar[] terminees, 
+			int maxTraces, int maxParSemaine, int maxParTrace) {
+		super(ArrayUtils.append(tracesSuivies(planning, semaines[0].length), ArrayUtils.flatten(semaines), ArrayUtils.flatten(traces), 
+				semainesExactes ? new BoolVar[0] : terminees), PropagatorPriority.LINEAR, true);
+		this.nbFormations = semaines.length;
+		this.nbSemaines = semaines[0].length;
+		this.n = nbSemaines * JOURS_OUVRES * EDF.NB_TRACES_JOUR;
+		this.nbGroupes = nbSemaines + EDF.NB_TRACES_JOUR;
+		this.maxSemaines = maxSemaines;
+		this.semainesExactes = semainesExactes;
+		this.terminees = semainesExactes ? null : terminees;
+		this.maxTraces = maxTraces;
+		this.maxParSemaine = maxParSemaine;
+		this.maxParTrace = maxParTrace;
+		
+		groupes = new int[nbGroupes][];
+		for (int s = 0; s < nbSemaines; s++) {
+			groupes[s] = new int[JOURS_OUVRES * EDF.NB_TRACES_JOUR];
+		}
+		for (int t = 0; t < EDF.NB_TRACES_JOUR; t++) {
+			groupes[nbSemaines + t] = new int[nbSemaines * JOURS_OUVRES];
+		}
+		groupeSemaine = new int[n];
+		groupeTrace = new int[n];
+		for (int j = 0; j < n; j++) {
+			int s = j / (JOURS_OUVRES * EDF.NB_TRACES_JOUR);
+			int t = j % EDF.NB_TRACES_JOUR;
+			groupeSemaine[j] = s;
+			groupeTrace[j] = nbSemaines + t;
+			groupes[s][j % (JOURS_OUVRES * EDF.NB_TRACES_JOUR)] = j;
+			groupes[nbSemaines + t][j / EDF.NB_TRACES_JOUR] = j;
+		}
+		
+		booleens = new BoolVar[nbFormations][nbGroupes];
+		supports = new IStateInt[nbFormations][nbGroupes];
+		for (int f = 0; f < nbFormations; f++) {
+			for (int g = 0; g < nbGroupes; g++) {
+				booleens[f][g] = g < nbSemaines ? semaines[f][g] : traces[f][g - nbSemaines];
+				supports[f][g] = model.getEnvironment().makeInt(0);
+			}
+		}
+		
+		deltas = new IIntDeltaMonitor[n];
+		for (int j = 0; j < n; j++) {
+			deltas[j] = vars[j].monitorDelta(this);
+		}
+		file = new int[nbFormations * nbGroupes + 2 * nbFormations];
+		enFile = new boolean[file.length];
+		retraits = new UnaryIntProcedure<Integer>() {
+			private int j;
+			
+			@Override
+			public UnaryIntProcedure<Integer> set(Integer j) {
+				this.j = j;
+				return this;
+			}
+			
+			@Override
+			public void execute(int valeur) {
+				retire(j, valeur);
+			}
+		};
+	}
+	
+	/**
+	 * Les traces des jours ouvrés des semaines complètes, semaine par semaine et jour par jour
+	 */
+	private static IntVar[] tracesSuivies(IntVar[] planning, int nbSemaines) {
+		IntVar[] traces = new IntVar[nbSemaines * JOURS_OUVRES * EDF.NB_TRACES_JOUR];
+		int k = 0;
+		for (int s = 0; s < nbSemaines; s++) {
+			for (int d = 0; d < JOURS_OUVRES; d++) {
+				for (int t = 0; t < EDF.NB_TRACES_JOUR; t++) {
+					traces[k++] = planning[(s * 7 + d) * EDF.NB_TRACES_JOUR + t];
+				}
+			}
+		}
+		return traces;
+	}
+	
+	@Override
+	public int getPropagationConditions(int vIdx) {
+		return vIdx < n ? IntEventType.all() : IntEventType.INSTANTIATE.getMask();
+	}
+	
+	@Override
+	public void propagate(int evtmask) throws ContradictionException {
+		if(PropagatorEventType.isFullPropagation(evtmask)) {
+			for (int f = 0; f < nbFormations; f++) {
+				for (int g = 0; g < nbGroupes; g++) {
+					int nb = 0;
+					for (int j : groupes[g]) {
+						if(vars[j].contains(f + 1)) nb++;
+					}
+					supports[f][g].set(nb);
+					ajouter(f * nbGroupes + g);
+				}
+				ajouter(comptesSemaines(f));
+				ajouter(comptesTraces(f));
+			}
+			for (int j = 0; j < n; j++) {
+				deltas[j].freeze();
+				deltas[j].unfreeze();
+			}
+		}
+		try {
+			while(tailleFile > 0) {
+				int verification = file[--tailleFile];
+				enFile[verification] = false;
+				if(verification < nbFormations * nbGroupes) {
+					verifierGroupe(verification / nbGroupes, verification % nbGroupes);
+				} else if(verification < nbFormations * nbGroupes + nbFormations) {
+					verifierSemaines(verification - nbFormations * nbGroupes);
+				} else {
+					verifierComptes(verification - nbFormations * nbGroupes - nbFormations, nbSemaines, nbGroupes, maxTraces, false);
+				}
+			}
+		} finally {
+			while(tailleFile > 0) {
+				enFile[file[--tailleFile]] = false;
+			}
+		}
+	}
+	
+	@Override
+	public void propagate(int idxVarInProp, int mask) throws ContradictionException {
+		if(idxVarInProp < n) {
+			deltas[idxVarInProp].freeze();
+			deltas[idxVarInProp].forEachRemVal(retraits.set(idxVarInProp));
+			deltas[idxVarInProp].unfreeze();
+			if(vars[idxVarInProp].isInstantiated() && formation(vars[idxVarInProp].getValue())) {
+				int f = vars[idxVarInProp].getValue() - 1;
+				ajouter(f * nbGroupes + groupeSemaine[idxVarInProp]);
+				ajouter(f * nbGroupes + groupeTrace[idxVarInProp]);
+			}
+		} else {
+			int b = idxVarInProp - n;
+			int f;
+			int g;
+			if(b >= nbFormations * (nbSemaines + EDF.NB_TRACES_JOUR)) {
+				ajouter(comptesSemaines(b - nbFormations * (nbSemaines + EDF.NB_TRACES_JOUR)));
+				forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+				return;
+			}
+			if(b < nbFormations * nbSemaines) {
+				f = b / nbSemaines;
+				g = b % nbSemaines;
+				ajouter(comptesSemaines(f));
+			} else {
+				b -= nbFormations * nbSemaines;
+				f = b / EDF.NB_TRACES_JOUR;
+				g = nbSemaines + b % EDF.NB_TRACES_JOUR;
+				ajouter(comptesTraces(f));
+			}
+			ajouter(f * nbGroupes + g);
+		}
+		forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
+	}
+	
+	/**
+	 * La formation f, de booléen b dans le groupe g : faux si aucune trace du groupe ne peut la porter,
+	 * vrai si une trace la porte, sa seule trace possible la porte s'il est vrai, aucune s'il est faux.
+	 * Le groupe porte au plus maxParGroupe sessions de la formation.
+	 */
+	private void verifierGroupe(int f, int g) throws ContradictionException {
+		BoolVar b = booleens[f][g];
+		if(supports[f][g].get() == 0) {
+			fixer(f, g, 0);
+			return;
+		}
+		if(b.isInstantiatedTo(0)) {
+			// Une trace fixée à la formation dans la même propagation que le booléen le contredit
+			for (int j : groupes[g]) {
+				if(vars[j].isInstantiatedTo(f + 1)) {
+					fails();
+				}
+			}
+			retirerDuGroupe(f, g);
+			return;
+		}
+		int sessions = 0;
+		int seule = -1;
+		for (int j : groupes[g]) {
+			if(vars[j].isInstantiatedTo(f + 1)) {
+				sessions++;
+			} else if(vars[j].contains(f + 1)) {
+				seule = j;
+			}
+		}
+		int max = g < nbSemaines ? maxParSemaine : maxParTrace;
+		if(sessions > max) {
+			fails();
+		}
+		if(sessions > 0) {
+			fixer(f, g, 1);
+			if(sessions == max) {
+				retirerDuGroupe(f, g);
+			}
+		} else if(b.isInstantiatedTo(1) && supports[f][g].get() == 1) {
+			instancier(seule, f + 1);
+		}
+	}
+	
+	/**
+	 * Retire la formation f des traces non fixées du groupe g
+	 */
+	private void retirerDuGroupe(int f, int g) throws ContradictionException {
+		for (int j : groupes[g]) {
+			if(!vars[j].isInstantiated() && vars[j].contains(f + 1)) {
+				retirer(j, f + 1);
+			}
+		}
+	}
+	
+	/**
+	 * Les semaines de la formation f : exactement maxSemaines si elles sont exactes ou si la formation est terminée,
+	 * moins sinon si elle ne l'est pas
+	 */
+	private void verifierSemaines(int f) throws ContradictionException {
+		int max = maxSemaines[f];
+		boolean exact = semainesExactes;
+		if(terminees != null && terminees[f].isInstantiatedTo(1)) {
+			exact = true;
+		} else if(terminees != null && terminees[f].isInstantiatedTo(0)) {
+			max--;
+		}
+		verifierComptes(f, 0, nbSemaines, max, exact);
+		if(terminees != null && !terminees[f].isInstantiated()) {
+			int vrais = 0;
+			int possibles = 0;
+			for (int g = 0; g < nbSemaines; g++) {
+				if(booleens[f][g].isInstantiatedTo(1)) vrais++;
+				if(booleens[f][g].contains(1)) possibles++;
+			}
+			if(vrais == max) {
+				terminees[f].instantiateTo(1, this);
+			} else if(possibles < max) {
+				terminees[f].instantiateTo(0, this);
+			}
+		}
+	}
+	
+	/**
+	 * Le nombre de booléens vrais de la formation f parmi les groupes [debut, fin[ : au plus max, exactement max si exact
+	 */
+	private void verifierComptes(int f, int debut, int fin, int max, boolean exact) throws ContradictionException {
+		int vrais = 0;
+		int possibles = 0;
+		for (int g = debut; g < fin; g++) {
+			if(booleens[f][g].isInstantiatedTo(1)) vrais++;
+			if(booleens[f][g].contains(1)) possibles++;
+		}
+		if(vrais > max || (exact && possibles < max)) {
+			fails();
+		}
+		if(vrais == max && possibles > max) {
+			for (int g = debut; g < fin; g++) {
+				if(!booleens[f][g].isInstantiated()) fixer(f, g, 0);
+			}
+		} else if(exact && possibles == max && vrais < max) {
+			for (int g = debut; g < fin; g++) {
+				if(!booleens[f][g].isInstantiated()) fixer(f, g, 1);
+			}
+		}
+	}
+	
+	private void fixer(int f, int g, int valeur) throws ContradictionException {
+		if(booleens[f][g].instantiateTo(valeur, this)) {
+			ajouter(f * nbGroupes + g);
+			ajouter(g < nbSemaines ? comptesSemaines(f) : comptesTraces(f));
+		}
+	}
+	
+	private void retirer(int j, int valeur) throws ContradictionException {
+		if(vars[j].removeValue(valeur, this)) {
+			retire(j, valeur);
+			if(vars[j].isInstantiated() && formation(vars[j].getValue())) {
+				ajouter((vars[j].getValue() - 1) * nbGroupes + groupeSemaine[j]);
+				ajouter((vars[j].getValue() - 1) * nbGroupes + groupeTrace[j]);
+			}
+		}
+	}
+	
+	private void instancier(int j, int valeur) throws ContradictionException {
+		IntVar var = vars[j];
+		for (int v = var.getLB(); v <= var.getUB(); v = var.nextValue(v)) {
+			if(v != valeur) retire(j, v);
+		}
+		var.instantiateTo(valeur, this);
+		ajouter((valeur - 1) * nbGroupes + groupeSemaine[j]);
+		ajouter((valeur - 1) * nbGroupes + groupeTrace[j]);
+	}
+	
+	/**
+	 * La valeur a été retirée du domaine de la trace j : un support de moins dans ses deux groupes
+	 */
+	private void retire(int j, int valeur) {
+		if(formation(valeur)) {
+			int f = valeur - 1;
+			supports[f][groupeSemaine[j]].add(-1);
+			supports[f][groupeTrace[j]].add(-1);
+			ajouter(f * nbGroupes + groupeSemaine[j]);
+			ajouter(f * nbGroupes + groupeTrace[j]);
+		}
+	}
+	
+	private boolean formation(int valeur) {
+		return valeur >= 1 && valeur <= nbFormations;
+	}
+	
+	private int comptesSemaines(int f) {
+		return nbFormations * nbGroupes + f;
+	}
+	
+	private int comptesTraces(int f) {
+		return nbFormations * nbGroupes + nbFormations + f;
+	}
+	
+	private void ajouter(int verification) {
+		if(!enFile[verification]) {
+			enFile[verification] = true;
+			file[tailleFile++] = verification;
+		}
+	}
+	
+	@Override
+	public ESat isEntailed() {
+		if(!isCompletelyInstantiated()) {
+			return ESat.UNDEFINED;
+		}
+		for (int f = 0; f < nbFormations; f++) {
+			int semaines = 0;
+			int traces = 0;
+			for (int g = 0; g < nbGroupes; g++) {
+				int sessions = 0;
+				for (int j : groupes[g]) {
+					if(vars[j].getValue() == f + 1) sessions++;
+				}
+				boolean suivie = sessions > 0;
+				if(suivie != (booleens[f][g].getValue() == 1) || sessions > (g < nbSemaines ? maxParSemaine : maxParTrace)) {
+					return ESat.FALSE;
+				}
+				if(suivie && g < nbSemaines) semaines++;
+				if(suivie && g >= nbSemaines) traces++;
+			}
+			if(semaines > maxSemaines[f] || (semainesExactes && semaines != maxSemaines[f]) || traces > maxTraces
+					|| (terminees != null && (terminees[f].getValue() == 1) != (semaines == maxSemaines[f]))) {
+				return ESat.FALSE;
+			}
+		}
+		return ESat.TRUE;
+	}
+
+}
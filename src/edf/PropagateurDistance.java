@@ -0,0 +1,94 @@
+package edf;
+
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.ESat;
+
+/**
+ * La distance de Hamming à une solution de référence : au moins distance variables prennent
+ * une autre valeur que dans la référence, qui est la valeur des variables au dernier appel de changerReference().
+ * Le propagateur est posé une seule fois et ne filtre pas tant qu'il n'a pas de référence ; la référence est
+ * remplacée pendant la recherche (voir Enumeration). Les variables sont recomptées à chaque propagation :
+ * il n'y a pas d'état à défaire au retour arrière.
+ */
+public class PropagateurDistance extends Propagator<IntVar> {
+	
+	/** La valeur de chaque variable dans la référence, null avant la première référence */
+	private int[] reference;
+	
+	private int distance;
+	
+	public PropagateurDistance(IntVar[] vars, int distance) {
+		super(vars, PropagatorPriority.LINEAR, false);
+		this.distance = distance;
+	}
+	
+	/**
+	 * Les valeurs des variables, toutes instanciées, deviennent la référence ; le propagateur est propagé
+	 * au prochain retour arrière, qu'une de ses variables change ou non
+	 */
+	public void changerReference() {
+		if(reference == null) {
+			reference = new int[vars.length];
+		}
+		for (int i = 0; i < vars.length; i++) {
+			reference[i] = vars[i].getValue();
+		}
+		model.getSolver().getEngine().propagateOnBacktrack(this);
+	}
+	
+	@Override
+	public void propagate(int evtmask) throws ContradictionException {
+		if(reference == null) {
+			return;
+		}
+		// Les variables qui peuvent encore différer de la référence, et celles qui en diffèrent déjà
+		int possibles = 0;
+		int differentes = 0;
+		for (int i = 0; i < vars.length; i++) {
+			if(!vars[i].isInstantiatedTo(reference[i])) {
+				possibles++;
+				if(!vars[i].contains(reference[i])) {
+					differentes++;
+					if(differentes >= distance) {
+						return;
+					}
+				}
+			}
+		}
+		if(possibles < distance) {
+			fails();
+		}
+		if(possibles == distance) {
+			for (int i = 0; i < vars.length; i++) {
+				if(!vars[i].isInstantiatedTo(reference[i])) {
+					vars[i].removeValue(reference[i], this);
+				}
+			}
+		}
+	}
+	
+	@Override
+	public ESat isEntailed() {
+		if(reference == null) {
+			return ESat.TRUE;
+		}
+		int differentes = 0;
+		int possibles = 0;
+		for (int i = 0; i < vars.length; i++) {
+			if(!vars[i].contains(reference[i])) {
+				differentes++;
+			}
+			if(!vars[i].isInstantiatedTo(reference[i])) {
+				possibles++;
+			}
+		}
+		if(differentes >= distance) {
+			return ESat.TRUE;
+		}
+		return possibles < distance ? ESat.FALSE : ESat.UNDEFINED;
+	}
+
+}
@@ -0,0 +1,413 @@
+package edf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recherche distribuée sur des processus travailleurs : le coordinateur découpe l'espace de recherche en sous-problèmes
+ * indépendants, en fixant pour quelques équipes la première semaine complète où elles suivent leur formation la plus demandée
+ * (ou aucune semaine complète). Ces choix forment une partition exacte : aucune solution n'est perdue ni cherchée deux fois.
+ * Les travailleurs sont des JVM lancées sur la même machine et reliées au coordinateur par une socket TCP locale
+ * (voir TravailleurDistribue) : chacun demande un sous-problème, le résout avec un temps limite, rend compte et en redemande un.
+ * Le premier qui trouve une solution l'envoie au coordinateur, qui l'écrit et annule la recherche de tous les autres.
+ * Le protocole ne suppose pas que les travailleurs soient sur la même machine que le coordinateur.
+ */
+public class RechercheDistribuee {
+	
+	// Les messages des travailleurs
+	
+	/** Le travailleur attend un sous-problème */
+	static final byte DEMANDE = 1;
+	
+	/** Suivi du bloc de la solution (voir ecrireBloc()) */
+	static final byte SOLUTION = 2;
+	
+	/** Le sous-problème n'a pas de solution */
+	static final byte REFUTE = 3;
+	
+	/** La recherche a été arrêtée par le temps limite ou annulée */
+	static final byte INTERROMPU = 4;
+	
+	// Les messages du coordinateur
+	
+	/** Suivi du nombre de choix, puis de l'équipe, la formation et la semaine de chacun */
+	static final byte SOUS_PROBLEME = 10;
+	
+	/** Une solution a été trouvée ailleurs : la recherche en cours doit s'arrêter */
+	static final byte ANNULER = 11;
+	
+	/** Il n'y a plus de sous-problème, le travailleur se termine */
+	static final byte FIN = 12;
+	
+	/** Le temps laissé à chaque travailleur pour se connecter, en millisecondes */
+	private static final int DELAI_CONNEXION = 60000;
+	
+	private int nbTravailleurs;
+	
+	/** Le nombre d'équipes dont les choix découpent l'espace de recherche */
+	private int nbEquipesDecoupees;
+	
+	/** Le temps imparti à chaque sous-problème, en secondes */
+	private int tempsMax;
+	
+	private Strategie strategie;
+	
+	/** Les options de la ligne de commande transmises aux travailleurs (voir optionsTransmises()) */
+	private List<String> options;
+	
+	private ConcurrentLinkedQueue<int[][]> sousProblemes = new ConcurrentLinkedQueue<int[][]>();
+	
+	private List<Connexion> connexions = Collections.synchronizedList(new ArrayList<Connexion>());
+	
+	/** Vrai dès qu'un travailleur a trouvé une solution */
+	private AtomicBoolean resolu = new AtomicBoolean();
+	
+	private AtomicInteger nbRefutes = new AtomicInteger();
+	
+	private AtomicInteger nbInterrompus = new AtomicInteger();
+	
+	/**
+	 * @param nbTravailleurs le nombre de processus travailleurs lancés
+	 * @param nbEquipesDecoupees le nombre d'équipes découpées : (semaines + 1) puissance nbEquipesDecoupees sous-problèmes
+	 * @param tempsMax le temps imparti à chaque sous-problème, en secondes
+	 * @param options les options transmises aux travailleurs
+	 */
+	public RechercheDistribuee(int nbTravailleurs, int nbEquipesDecoupees, int tempsMax, Strategie strategie, List<String> options) {
+		this.nbTravailleurs = nbTravailleurs;
+		this.nbEquipesDecoupees = nbEquipesDecoupees;
+		this.tempsMax = tempsMax;
+		this.strategie = strategie;
+		this.options = options;
+	}
+	
+	/**
+	 * Découpe le modèle de tout l'horizon, lance les travailleurs et distribue les sous-problèmes
+	 * jusqu'à la première solution, écrite dans la sortie des solutions (voir EDF.ouvrirSortie())
+	 * @return true si une solution a été trouvée
+	 */
+	public boolean go() throws Exception {
+		long debut = System.currentTimeMillis();
+		decouper(new EDF());
+		int nbSousProblemes = sousProblemes.size();
+		System.out.println(nbSousProblemes+" sous-problèmes pour "+nbTravailleurs+" travailleurs");
+		
+		ServerSocket serveur = new ServerSocket(0, nbTravailleurs, InetAddress.getLoopbackAddress());
+		ArrayList<Process> processus = new ArrayList<Process>();
+		ExecutorService executeur = Executors.newFixedThreadPool(nbTravailleurs);
+		try {
+			for (int i = 0; i < nbTravailleurs; i++) {
+				processus.add(lancerTravailleur(serveur.getLocalPort(), i));
+			}
+			serveur.setSoTimeout(DELAI_CONNEXION);
+			for (int i = 0; i < nbTravailleurs; i++) {
+				Connexion connexion = new Connexion(serveur.accept());
+				connexions.add(connexion);
+				executeur.submit(() -> servir(connexion));
+			}
+			executeur.shutdown();
+			executeur.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+			for (Process p : processus) {
+				p.waitFor();
+			}
+		} finally {
+			executeur.shutdownNow();
+			serveur.close();
+			for (Process p : processus) {
+				p.destroy();
+			}
+		}
+		
+		String bilan = nbRefutes.get()+" sous-problème(s) réfuté(s), "+nbInterrompus.get()+" interrompu(s) par le temps limite";
+		if(resolu.get()) {
+			System.out.println("Solution trouvée en "+(System.currentTimeMillis() - debut)+" ms - "+bilan);
+		} else if(nbRefutes.get() == nbSousProblemes) {
+			System.out.println("Aucune solution : tous les sous-problèmes sont réfutés ("+(System.currentTimeMillis() - debut)+" ms)");
+		} else {
+			System.out.println("Aucune solution trouvée en "+(System.currentTimeMillis() - debut)+" ms - "+bilan);
+		}
+		return resolu.get();
+	}
+	
+	/**
+	 * Les sous-problèmes : les équipes découpées sont celles qui ont le moins de jours disponibles,
+	 * chacune sur la formation dont il lui reste le plus de traces
+	 */
+	private void decouper(EDF edf) {
+		int[] joursDisponibles = edf.getJoursDisponibles();
+		double[][] tracesRestantes = edf.getEtat().getTracesRestantes();
+		Integer[] ordre = new Integer[edf.getNbEquipes()];
+		for (int i = 0; i < ordre.length; i++) {
+			ordre[i] = i;
+		}
+		Arrays.sort(ordre, Comparator.comparingInt(i -> joursDisponibles[i]));
+		
+		ArrayList<int[]> decoupes = new ArrayList<int[]>();
+		for (int i = 0; i < ordre.length && decoupes.size() < nbEquipesDecoupees; i++) {
+			int equipe = ordre[i];
+			int formation = 0;
+			for (int j = 1; j < edf.getNbFormations(); j++) {
+				if(tracesRestantes[equipe][j] > tracesRestantes[equipe][formation]) {
+					formation = j;
+				}
+			}
+			if(tracesRestantes[equipe][formation] > 0) {
+				decoupes.add(new int[] {equipe, formation});
+				System.out.println("Découpe : équipe "+(equipe+1)+", formation "+(formation+1)+" ("+joursDisponibles[equipe]+" jours disponibles)");
+			}
+		}
+		
+		// Toutes les combinaisons des premières semaines, -1 pour aucune semaine complète
+		int nbSemaines = edf.getNbSemaines();
+		int[] semaines = new int[decoupes.size()];
+		Arrays.fill(semaines, -1);
+		while(true) {
+			int[][] choix = new int[decoupes.size()][];
+			for (int c = 0; c < choix.length; c++) {
+				choix[c] = new int[] {decoupes.get(c)[0], decoupes.get(c)[1], semaines[c]};
+			}
+			sousProblemes.add(choix);
+			int c = 0;
+			while(c < semaines.length && semaines[c] == nbSemaines - 1) {
+				semaines[c] = -1;
+				c++;
+			}
+			if(c == semaines.length) {
+				break;
+			}
+			semaines[c]++;
+		}
+	}
+	
+	/**
+	 * Lance un travailleur dans une nouvelle JVM, avec le même classpath et les options transmises
+	 */
+	private Process lancerTravailleur(int port, int numero) throws IOException {
+		ArrayList<String> commande = new ArrayList<String>();
+		commande.add(System.getProperty("java.home")+File.separator+"bin"+File.separator+"java");
+		commande.add("-Dfile.encoding="+System.getProperty("file.encoding"));
+		commande.add("-cp");
+		commande.add(System.getProperty("java.class.path"));
+		commande.add(EDF.class.getName());
+		commande.addAll(options);
+		commande.addAll(Arrays.asList("travailleur", InetAddress.getLoopbackAddress().getHostAddress(), String.valueOf(port),
+				String.valueOf(tempsMax), strategie.name(), String.valueOf(numero)));
+		return new ProcessBuilder(commande).inheritIO().start();
+	}
+	
+	/**
+	 * Répond aux messages d'un travailleur jusqu'à sa fin.
+	 * Si la connexion est perdue, son sous-problème en cours est rendu aux autres.
+	 */
+	private void servir(Connexion connexion) {
+		int[][] enCours = null;
+		try {
+			while(true) {
+				byte message = connexion.entree.readByte();
+				if(message == SOLUTION) {
+					SortieSolution sortie = resolu.compareAndSet(false, true) ? EDF.ouvrirSortie() : new SortieIgnoree();
+					lireBloc(connexion.entree, sortie);
+					sortie.fermer();
+					if(!(sortie instanceof SortieIgnoree)) {
+						System.out.println("Solution du sous-problème "+decrire(enCours));
+						annulerSauf(connexion);
+					}
+					enCours = null;
+				} else if(message == REFUTE) {
+					nbRefutes.incrementAndGet();
+					enCours = null;
+				} else if(message == INTERROMPU) {
+					if(!resolu.get()) {
+						nbInterrompus.incrementAndGet();
+					}
+					enCours = null;
+				} else if(message == DEMANDE) {
+					enCours = resolu.get() ? null : sousProblemes.poll();
+					if(enCours == null) {
+						connexion.envoyer(FIN);
+						break;
+					}
+					connexion.envoyer(enCours);
+				} else {
+					throw new IOException("Message inconnu : "+message);
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Connexion perdue avec un travailleur : "+e.getMessage());
+			if(enCours != null && !resolu.get()) {
+				sousProblemes.add(enCours);
+			}
+		} finally {
+			connexion.fermer();
+		}
+	}
+	
+	private void annulerSauf(Connexion gagnante) {
+		synchronized (connexions) {
+			for (Connexion connexion : connexions) {
+				if(connexion != gagnante) {
+					try {
+						connexion.envoyer(ANNULER);
+					} catch (IOException e) {
+						// Le travailleur est déjà terminé
+					}
+				}
+			}
+		}
+	}
+	
+	private static String decrire(int[][] choix) {
+		StringBuilder description = new StringBuilder();
+		for (int[] c : choix) {
+			description.append(description.length() > 0 ? ", " : "").append("équipe ").append(c[0] + 1).append(" formation ").append(c[1] + 1)
+					.append(c[2] < 0 ? " sans semaine complète" : " à partir de la semaine "+(c[2] + 1));
+		}
+		return description.toString();
+	}
+	
+	/**
+	 * Les options de la ligne de commande qui décrivent le modèle et sa résolution, à transmettre aux travailleurs
+	 * (les sorties et les métriques restent celles du coordinateur)
+	 */
+	public static List<String> optionsTransmises(String[] ligneDeCommande) {
+		ArrayList<String> options = new ArrayList<String>();
+		List<String> drapeaux = Arrays.asList("-symetries", "-anonyme", "-profil", "-sansverification");
+		for (int i = 0; i < ligneDeCommande.length; i++) {
+			if(drapeaux.contains(ligneDeCommande[i])) {
+				options.add(ligneDeCommande[i]);
+			} else if((ligneDeCommande[i].equals("-donnees") || ligneDeCommande[i].equals("-resolution")) && i + 1 < ligneDeCommande.length) {
+				options.add(ligneDeCommande[i]);
+				options.add(ligneDeCommande[++i]);
+			}
+		}
+		return options;
+	}
+	
+	/**
+	 * Écrit un bloc de solution sur la connexion, au format de SortieSolution.ecrire()
+	 */
+	static void ecrireBloc(DataOutputStream sortie, int jourDebut, int nbJours, int[][] equipes, int[][] formateurs, int[][] salles,
+			int[][][] semaines) throws IOException {
+		sortie.writeInt(jourDebut);
+		sortie.writeInt(nbJours);
+		ecrireMatrice(sortie, equipes);
+		ecrireMatrice(sortie, formateurs);
+		ecrireMatrice(sortie, salles);
+		sortie.writeInt(semaines.length);
+		for (int[][] semainesEquipe : semaines) {
+			ecrireMatrice(sortie, semainesEquipe);
+		}
+	}
+	
+	/**
+	 * Lit un bloc de solution écrit par ecrireBloc() et le recopie dans la sortie donnée
+	 */
+	static void lireBloc(DataInputStream entree, SortieSolution sortie) throws IOException {
+		int jourDebut = entree.readInt();
+		int nbJours = entree.readInt();
+		int[][] equipes = lireMatrice(entree);
+		int[][] formateurs = lireMatrice(entree);
+		int[][] salles = lireMatrice(entree);
+		int[][][] semaines = new int[entree.readInt()][][];
+		for (int i = 0; i < semaines.length; i++) {
+			semaines[i] = lireMatrice(entree);
+		}
+		sortie.ecrire(jourDebut, nbJours, equipes, formateurs, salles, semaines);
+	}
+	
+	private static void ecrireMatrice(DataOutputStream sortie, int[][] matrice) throws IOException {
+		sortie.writeInt(matrice.length);
+		for (int[] ligne : matrice) {
+			sortie.writeInt(ligne.length);
+			for (int valeur : ligne) {
+				sortie.writeInt(valeur);
+			}
+		}
+	}
+	
+	private static int[][] lireMatrice(DataInputStream entree) throws IOException {
+		int[][] matrice = new int[entree.readInt()][];
+		for (int i = 0; i < matrice.length; i++) {
+			matrice[i] = new int[entree.readInt()];
+			for (int j = 0; j < matrice[i].length; j++) {
+				matrice[i][j] = entree.readInt();
+			}
+		}
+		return matrice;
+	}
+	
+	/**
+	 * La connexion avec un travailleur : les envois sont synchronisés,
+	 * l'annulation pouvant venir du fil d'une autre connexion
+	 */
+	private static class Connexion {
+		
+		private Socket socket;
+		
+		private DataInputStream entree;
+		
+		private DataOutputStream sortie;
+		
+		private Connexion(Socket socket) throws IOException {
+			this.socket = socket;
+			entree = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			sortie = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		}
+		
+		private synchronized void envoyer(byte message) throws IOException {
+			sortie.writeByte(message);
+			sortie.flush();
+		}
+		
+		private synchronized void envoyer(int[][] choix) throws IOException {
+			sortie.writeByte(SOUS_PROBLEME);
+			sortie.writeInt(choix.length);
+			for (int[] c : choix) {
+				sortie.writeInt(c[0]);
+				sortie.writeInt(c[1]);
+				sortie.writeInt(c[2]);
+			}
+			sortie.flush();
+		}
+		
+		private void fermer() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Déjà fermée
+			}
+		}
+	}
+	
+	/**
+	 * Les solutions arrivées après la première sont lues puis ignorées
+	 */
+	private static class SortieIgnoree implements SortieSolution {
+		
+		@Override
+		public void ecrire(int jourDebut, int nbJours, int[][] equipes, int[][] formateurs, int[][] salles, int[][][] semaines) {
+		}
+		
+		@Override
+		public void fermer() {
+		}
+	}
+
+}
@@ -0,0 +1,262 @@
+package edf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.strategy.Search;
+import org.chocosolver.solver.search.strategy.selectors.values.IntDomainMin;
+import org.chocosolver.solver.search.strategy.selectors.variables.DomOverWDeg;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Réparation incrémentale d'un planning publié après un changement des données,
+ * typiquement une nouvelle période de congés d'un formateur dans DisposFormateurs.csv.
+ * Le modèle est construit avec les nouvelles données et la solution précédente y est relue.
+ * Une trace est en conflit quand sa valeur précédente n'y est plus possible. Pour chacune, seules sont libérées,
+ * à quelques jours près de part et d'autre :
+ * - les traces de la ressource en conflit (l'équipe, le formateur ou la salle) ;
+ * - celles des ressources liées, qui avaient la même formation à la même trace (la session en conflit) ;
+ * - les traces sans cours des formateurs et des salles, qui peuvent accueillir les sessions déplacées.
+ * Tout le reste est fixé à sa valeur précédente. Si la région libérée ne suffit pas, elle est élargie
+ * et la réparation recommence. Un rayon qui couvre l'horizon libère tout le planning.
+ * Sans trace en conflit, la solution précédente n'est gardée que si elle respecte aussi les contraintes globales
+ * (équilibre et limite annuelle des formateurs, besoins des équipes) ; sinon, toutes les sessions des formateurs
+ * sont considérées en conflit.
+ */
+public class Reparation {
+	
+	/** L'indice des plannings dans plannings() */
+	private static final int EQUIPES = 0;
+	
+	private static final int FORMATEURS = 1;
+	
+	/** L'horizon planifié, en jours */
+	private int nbJours;
+	
+	/** Les rayons successifs, en jours, de la région libérée autour des traces en conflit */
+	private int[] rayons;
+	
+	/** Le temps limite de chaque tentative, en secondes */
+	private int tempsMax;
+	
+	private String fichierEquipes;
+	
+	private String fichierFormateurs;
+	
+	private String fichierSalles;
+	
+	public Reparation(int nbJours, int[] rayons, int tempsMax, String fichierEquipes, String fichierFormateurs, String fichierSalles) {
+		this.nbJours = nbJours;
+		this.rayons = rayons;
+		this.tempsMax = tempsMax;
+		this.fichierEquipes = fichierEquipes;
+		this.fichierFormateurs = fichierFormateurs;
+		this.fichierSalles = fichierSalles;
+	}
+	
+	/**
+	 * @return le planning réparé, null si aucune réparation n'a été trouvée
+	 */
+	public EDF go() throws Exception {
+		for (int rayon : rayons) {
+			long debut = System.currentTimeMillis();
+			EDF edf = new EDF(0, nbJours, nbJours, nbJours, null);
+			SolutionPrecedente precedente = lire(edf);
+			ArrayList<int[]> conflits = conflits(edf, precedente);
+			if(conflits.isEmpty()) {
+				if(rayon == rayons[0]) {
+					// Toutes les traces gardent leur valeur : la résolution vérifie les contraintes globales
+					edf.getSolver().limitTime(tempsMax+"s");
+					if(fixer(edf, precedente, null) != null && edf.getSolver().solve()) {
+						System.out.println("Réparation : la solution précédente respecte les nouvelles données");
+						return edf;
+					}
+					System.out.println("Réparation : aucune trace en conflit, mais les contraintes globales ne sont plus respectées"
+							+" (équilibre ou limite annuelle des formateurs, besoins des équipes)");
+					edf = new EDF(0, nbJours, nbJours, nbJours, null);
+					precedente = lire(edf);
+				}
+				conflits = sessionsFormateurs(edf, precedente);
+			}
+			
+			boolean[][][] libres = rayon >= nbJours ? toutLibre(edf) : voisinage(edf, precedente, conflits, rayon);
+			IntVar[] variablesLibres = fixer(edf, precedente, libres);
+			if(variablesLibres == null) {
+				System.out.println("Réparation (rayon "+rayon+" jours) : la partie fixée est incompatible avec les nouvelles données");
+				continue;
+			}
+			
+			Solver solver = edf.getSolver();
+			solver.setSearch(new DomOverWDeg(variablesLibres, 0, precedente), Search.inputOrderLBSearch(edf.getVariablesDecision()));
+			solver.limitTime(tempsMax+"s");
+			String region = "rayon "+rayon+" jours, "+conflits.size()+" trace(s) en conflit, "+variablesLibres.length+" traces libérées";
+			if(solver.solve()) {
+				System.out.println("Réparation ("+region+") trouvée en "+(System.currentTimeMillis() - debut)+" ms"
+						+" - traces modifiées par rapport à la solution précédente : "+modifications(edf, precedente));
+				return edf;
+			}
+			System.out.println("Réparation ("+region+") : échec en "+(System.currentTimeMillis() - debut)+" ms");
+		}
+		return null;
+	}
+	
+	/**
+	 * Relit la solution précédente dans le modèle
+	 */
+	private SolutionPrecedente lire(EDF edf) throws Exception {
+		SolutionPrecedente precedente = new SolutionPrecedente(new IntDomainMin());
+		precedente.lire(fichierEquipes, "EQ", edf.getEquipes(), edf);
+		precedente.lire(fichierFormateurs, "FORM", edf.getFormateurs(), edf);
+		precedente.lire(fichierSalles, "SALLE", edf.getSalles(), edf);
+		return precedente;
+	}
+	
+	/**
+	 * Les traces en conflit : la variable ne peut plus prendre sa valeur précédente
+	 * @return le planning (indice dans plannings()), la ligne et la trace de chaque conflit
+	 */
+	private ArrayList<int[]> conflits(EDF edf, SolutionPrecedente precedente) {
+		ArrayList<int[]> conflits = new ArrayList<int[]>();
+		ArrayList<IntVar[][]> plannings = plannings(edf);
+		for (int p = 0; p < plannings.size(); p++) {
+			IntVar[][] planning = plannings.get(p);
+			for (int i = 0; i < planning.length; i++) {
+				for (int j = 0; j < planning[i].length; j++) {
+					Integer valeur = precedente.getValeur(planning[i][j]);
+					if(valeur != null && !planning[i][j].contains(valeur)) {
+						conflits.add(new int[] {p, i, j});
+					}
+				}
+			}
+		}
+		return conflits;
+	}
+	
+	/**
+	 * Les sessions des formateurs dans la solution précédente, traitées comme des conflits
+	 * quand seules les contraintes globales ne sont plus respectées
+	 */
+	private ArrayList<int[]> sessionsFormateurs(EDF edf, SolutionPrecedente precedente) {
+		ArrayList<int[]> sessions = new ArrayList<int[]>();
+		IntVar[][] formateurs = edf.getFormateurs();
+		for (int k = 0; k < formateurs.length; k++) {
+			for (int j = 0; j < formateurs[k].length; j++) {
+				Integer valeur = precedente.getValeur(formateurs[k][j]);
+				if(valeur != null && valeur > EDF.PAS_DE_COURS) {
+					sessions.add(new int[] {FORMATEURS, k, j});
+				}
+			}
+		}
+		return sessions;
+	}
+	
+	/**
+	 * Les traces libérées autour des conflits, à rayon jours près : celles de la ressource en conflit,
+	 * celles des ressources qui avaient la même formation à la même trace, et les traces sans cours
+	 * des formateurs et des salles
+	 */
+	private boolean[][][] voisinage(EDF edf, SolutionPrecedente precedente, ArrayList<int[]> conflits, int rayon) {
+		ArrayList<IntVar[][]> plannings = plannings(edf);
+		boolean[][][] libres = new boolean[plannings.size()][][];
+		for (int p = 0; p < plannings.size(); p++) {
+			libres[p] = new boolean[plannings.get(p).length][edf.getEquipes()[0].length];
+		}
+		for (int[] conflit : conflits) {
+			int trace = conflit[2];
+			int formation = precedente.getValeur(plannings.get(conflit[0])[conflit[1]][trace]);
+			int jour = trace / EDF.NB_TRACES_JOUR;
+			int premiere = Math.max(0, jour - rayon) * EDF.NB_TRACES_JOUR;
+			int derniere = Math.min(nbJours, jour + rayon + 1) * EDF.NB_TRACES_JOUR;
+			for (int p = 0; p < plannings.size(); p++) {
+				IntVar[][] planning = plannings.get(p);
+				for (int i = 0; i < planning.length; i++) {
+					Integer valeur = precedente.getValeur(planning[i][trace]);
+					boolean liee = (p == conflit[0] && i == conflit[1]) 
+							|| (formation != EDF.PAS_DE_COURS && valeur != null && valeur == formation);
+					for (int j = premiere; j < derniere; j++) {
+						Integer precedenteValeur = precedente.getValeur(planning[i][j]);
+						if(liee || (p != EQUIPES && precedenteValeur != null && precedenteValeur == EDF.PAS_DE_COURS)) {
+							libres[p][i][j] = true;
+						}
+					}
+				}
+			}
+		}
+		return libres;
+	}
+	
+	/**
+	 * Toutes les traces des plannings sont libérées
+	 */
+	private boolean[][][] toutLibre(EDF edf) {
+		ArrayList<IntVar[][]> plannings = plannings(edf);
+		boolean[][][] libres = new boolean[plannings.size()][][];
+		for (int p = 0; p < plannings.size(); p++) {
+			libres[p] = new boolean[plannings.get(p).length][edf.getEquipes()[0].length];
+			for (boolean[] ligne : libres[p]) {
+				Arrays.fill(ligne, true);
+			}
+		}
+		return libres;
+	}
+	
+	/**
+	 * Fixe les variables des plannings qui ne sont pas libres à leur valeur précédente
+	 * @param libres les traces libres de chaque planning, null pour tout fixer
+	 * @return les variables libres, null si la partie fixée est incohérente
+	 */
+	private IntVar[] fixer(EDF edf, SolutionPrecedente precedente, boolean[][][] libres) {
+		ArrayList<IntVar> variablesLibres = new ArrayList<IntVar>();
+		ArrayList<IntVar[][]> plannings = plannings(edf);
+		try {
+			for (int p = 0; p < plannings.size(); p++) {
+				IntVar[][] planning = plannings.get(p);
+				for (int i = 0; i < planning.length; i++) {
+					for (int j = 0; j < planning[i].length; j++) {
+						// Les traces indisponibles sont déjà des constantes
+						Integer valeur = precedente.getValeur(planning[i][j]);
+						if(valeur == null) {
+							continue;
+						}
+						if(libres != null && libres[p][i][j]) {
+							variablesLibres.add(planning[i][j]);
+						} else {
+							planning[i][j].instantiateTo(valeur, Cause.Null);
+						}
+					}
+				}
+			}
+		} catch (ContradictionException e) {
+			return null;
+		}
+		return variablesLibres.toArray(new IntVar[0]);
+	}
+	
+	/**
+	 * Le nombre de variables des plannings dont la valeur a changé par rapport à la solution précédente
+	 */
+	private int modifications(EDF edf, SolutionPrecedente precedente) {
+		int nb = 0;
+		for (IntVar[][] planning : plannings(edf)) {
+			for (int i = 0; i < planning.length; i++) {
+				for (int j = 0; j < planning[i].length; j++) {
+					Integer valeur = precedente.getValeur(planning[i][j]);
+					if(valeur != null && planning[i][j].getValue() != valeur) nb++;
+				}
+			}
+		}
+		return nb;
+	}
+	
+	private ArrayList<IntVar[][]> plannings(EDF edf) {
+		ArrayList<IntVar[][]> plannings = new ArrayList<IntVar[][]>();
+		plannings.add(edf.getEquipes());
+		plannings.add(edf.getFormateurs());
+		plannings.add(edf.getSalles());
+		return plannings;
+	}
+
+}
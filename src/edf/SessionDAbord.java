@@ -0,0 +1,20 @@
+package edf;
+
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Choix de valeur pour les traces des plannings : la plus petite formation encore possible,
+ * PAS_DE_COURS seulement quand aucune formation ne l'est plus.
+ * Une fois les semaines des formations décidées, le domaine d'une trace ne contient plus
+ * que les formations de sa semaine : les sessions sont ainsi placées au plus tôt dans la semaine.
+ */
+public class SessionDAbord implements IntValueSelector {
+	
+	@Override
+	public int selectValue(IntVar var) {
+		int formation = var.nextValue(EDF.PAS_DE_COURS);
+		return formation != Integer.MAX_VALUE ? formation : var.getLB();
+	}
+
+}
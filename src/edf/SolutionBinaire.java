@@ -0,0 +1,101 @@
+package edf;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * La solution au format binaire compact, relue par LecteurSolution. Le fichier est :
+ * - un en-tête : MAGIQUE, VERSION, puis les nombres d'équipes, de formateurs, de salles,
+ * de formations et de traces par jour, et START_DATE en jour epoch ;
+ * - une suite de blocs : le premier jour et le nombre de jours du bloc, puis les matrices
+ * des traces des équipes, des formateurs et des salles, ligne par ligne, un octet par trace
+ * (valeur + 1, NO_DISPONIBLE vaut 0), puis les semaines des formations de chaque équipe,
+ * un octet par semaine complète du bloc.
+ * Les entiers sont en big-endian (DataOutputStream). L'en-tête est écrit avec le premier bloc,
+ * dont il prend les dimensions ; tous les blocs ont les mêmes.
+ */
+public class SolutionBinaire implements SortieSolution {
+	
+	/** "EDFS" */
+	static final int MAGIQUE = 0x45444653;
+	
+	static final short VERSION = 1;
+	
+	private DataOutputStream sortie;
+	
+	/** Les dimensions de l'en-tête, null avant le premier bloc */
+	private int[] dimensions;
+	
+	/** La ligne en cours d'écriture, réutilisée */
+	private byte[] octets = new byte[0];
+	
+	public SolutionBinaire(String fichier) throws IOException {
+		sortie = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fichier), 1 << 16));
+	}
+	
+	@Override
+	public void ecrire(int jourDebut, int nbJours, int[][] equipes, int[][] formateurs, int[][] salles, int[][][] semaines) throws IOException {
+		int nbFormations = semaines.length > 0 ? semaines[0].length : 0;
+		int[] dimensionsBloc = new int[] {equipes.length, formateurs.length, salles.length, nbFormations};
+		if(dimensions == null) {
+			ecrireEntete(dimensionsBloc);
+		} else if(!Arrays.equals(dimensions, dimensionsBloc)) {
+			throw new IllegalArgumentException("Les dimensions du bloc "+Arrays.toString(dimensionsBloc)
+					+" diffèrent de celles du fichier "+Arrays.toString(dimensions));
+		}
+		
+		sortie.writeInt(jourDebut);
+		sortie.writeInt(nbJours);
+		int nbTraces = nbJours * EDF.NB_TRACES_JOUR;
+		ecrire(equipes, nbTraces);
+		ecrire(formateurs, nbTraces);
+		ecrire(salles, nbTraces);
+		for (int[][] semainesEquipe : semaines) {
+			ecrire(semainesEquipe, nbJours / 7);
+		}
+	}
+	
+	private void ecrireEntete(int[] dimensions) throws IOException {
+		this.dimensions = dimensions;
+		sortie.writeInt(MAGIQUE);
+		sortie.writeShort(VERSION);
+		for (int d : dimensions) {
+			sortie.writeInt(d);
+		}
+		sortie.writeInt(EDF.NB_TRACES_JOUR);
+		sortie.writeInt((int) LocalDate.parse(EDF.START_DATE, DateTimeFormatter.ofPattern("dd/MM/yyyy")).toEpochDay());
+	}
+	
+	private void ecrire(int[][] planning, int longueur) throws IOException {
+		if(octets.length < longueur) {
+			octets = new byte[longueur];
+		}
+		for (int[] ligne : planning) {
+			if(ligne.length != longueur) {
+				throw new IllegalArgumentException("Ligne de "+ligne.length+" valeurs au lieu de "+longueur);
+			}
+			for (int j = 0; j < longueur; j++) {
+				if(ligne[j] < EDF.NO_DISPONIBLE || ligne[j] > 254) {
+					throw new IllegalArgumentException("Valeur "+ligne[j]+" hors du format binaire");
+				}
+				octets[j] = (byte) (ligne[j] + 1);
+			}
+			sortie.write(octets, 0, longueur);
+		}
+	}
+	
+	@Override
+	public void fermer() throws IOException {
+		// Une solution sans aucun bloc reste un fichier valide
+		if(dimensions == null) {
+			ecrireEntete(new int[4]);
+		}
+		sortie.close();
+	}
+
+}
@@ -0,0 +1,142 @@
+package edf;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Une solution déjà publiée, relue depuis les fichiers écrits par printSolution()
+ * (lignes de la forme "EQ0 10/09/2017 T2 = 7", ou fichier binaire), utilisée pour guider le choix des valeurs :
+ * chaque variable reçoit en priorité sa valeur dans la solution précédente quand elle est encore
+ * dans son domaine, sinon la valeur du sélecteur par défaut.
+ */
+public class SolutionPrecedente implements IntValueSelector {
+	
+	/** La valeur de chaque variable dans la solution précédente */
+	private HashMap<IntVar, Integer> valeurs;
+	
+	/** Le sélecteur utilisé quand la valeur précédente n'est plus possible */
+	private IntValueSelector parDefaut;
+	
+	/** Le nombre de choix qui ont suivi la solution précédente */
+	private int suivis;
+	
+	/** Le nombre de choix qui s'en sont écartés */
+	private int ecarts;
+	
+	public SolutionPrecedente(IntValueSelector parDefaut) {
+		this.valeurs = new HashMap<IntVar, Integer>();
+		this.parDefaut = parDefaut;
+	}
+	
+	/**
+	 * Lit un fichier de solution et associe ses valeurs aux variables du planning donné.
+	 * Les traces absentes du fichier sont des traces sans cours. Les lignes d'un autre planning
+	 * ou hors de l'horizon du modèle sont ignorées. Un fichier binaire contient les trois plannings,
+	 * le préfixe choisit celui qui est lu.
+	 * @param prefixe le préfixe des lignes du planning : "EQ", "FORM" ou "SALLE"
+	 * @return le nombre de sessions relues, -1 si le fichier n'existe pas
+	 */
+	public int lire(String fichier, String prefixe, IntVar[][] planning, EDF edf) throws Exception {
+		File file = new File(fichier);
+		if(!file.exists() || planning.length == 0) {
+			return -1;
+		}
+		
+		HashMap<String, Integer> traces = new HashMap<String, Integer>();
+		for (int j = 0; j < planning[0].length; j++) {
+			traces.put(edf.getLibelleTrace(j), j);
+		}
+		
+		for (int i = 0; i < planning.length; i++) {
+			for (int j = 0; j < planning[i].length; j++) {
+				if(planning[i][j].contains(EDF.PAS_DE_COURS)) {
+					valeurs.put(planning[i][j], EDF.PAS_DE_COURS);
+				}
+			}
+		}
+		
+		if(LecteurSolution.estBinaire(fichier)) {
+			return lireBinaire(fichier, prefixe, planning, edf);
+		}
+		
+		int nbSessions = 0;
+		BufferedReader buf = new BufferedReader(new FileReader(file));
+		String line = buf.readLine();
+		while(line != null) {
+			// EQ0 10/09/2017 T2 = 7
+			String[] ligne = line.trim().split(" = ");
+			if(ligne.length == 2 && ligne[0].startsWith(prefixe)) {
+				int espace = ligne[0].indexOf(' ');
+				String numero = espace > 0 ? ligne[0].substring(prefixe.length(), espace) : "";
+				Integer trace = espace > 0 ? traces.get(ligne[0].substring(espace + 1)) : null;
+				if(trace != null && numero.matches("[0-9]+")) {
+					int i = Integer.parseInt(numero);
+					int valeur = Integer.parseInt(ligne[1].trim());
+					if(i < planning.length) {
+						valeurs.put(planning[i][trace], valeur);
+						nbSessions++;
+					}
+				}
+			}
+			line = buf.readLine();
+		}
+		buf.close();
+		return nbSessions;
+	}
+	
+	/**
+	 * Lit le planning d'un fichier binaire, bloc par bloc : seuls les jours de la fenêtre du modèle sont gardés
+	 */
+	private int lireBinaire(String fichier, String prefixe, IntVar[][] planning, EDF edf) throws IOException {
+		int nbSessions = 0;
+		LecteurSolution lecteur = new LecteurSolution(fichier);
+		while(lecteur.blocSuivant()) {
+			int[][] bloc = prefixe.equals("EQ") ? lecteur.getEquipes() : prefixe.equals("FORM") ? lecteur.getFormateurs() : lecteur.getSalles();
+			// Le décalage des traces du bloc par rapport à celles du modèle
+			int decalage = (lecteur.getJourDebut() - edf.getJourDebut()) * EDF.NB_TRACES_JOUR;
+			for (int i = 0; i < Math.min(bloc.length, planning.length); i++) {
+				for (int j = Math.max(0, -decalage); j < bloc[i].length && j + decalage < planning[i].length; j++) {
+					if(bloc[i][j] > EDF.PAS_DE_COURS) {
+						valeurs.put(planning[i][j + decalage], bloc[i][j]);
+						nbSessions++;
+					}
+				}
+			}
+		}
+		lecteur.fermer();
+		return nbSessions;
+	}
+	
+	/**
+	 * La valeur de la variable dans la solution précédente, null si elle n'en a pas
+	 */
+	public Integer getValeur(IntVar var) {
+		return valeurs.get(var);
+	}
+	
+	@Override
+	public int selectValue(IntVar var) {
+		Integer valeur = valeurs.get(var);
+		if(valeur != null && var.contains(valeur)) {
+			suivis++;
+			return valeur;
+		}
+		ecarts++;
+		return parDefaut.selectValue(var);
+	}
+	
+	public int getSuivis() {
+		return suivis;
+	}
+	
+	public int getEcarts() {
+		return ecarts;
+	}
+
+}
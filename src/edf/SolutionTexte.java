@@ -0,0 +1,78 @@
+package edf;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * La solution au format texte historique, un fichier par planning et une ligne par session
+ * (de la forme "EQ0 10/09/2017 T2 = 7"), relu par SolutionPrecedente.
+ * Les équipes ont en plus une ligne par formation suivie dans une semaine.
+ */
+public class SolutionTexte implements SortieSolution {
+	
+	private PrintWriter writerEquipes;
+	
+	private PrintWriter writerFormateurs;
+	
+	private PrintWriter writerSalles;
+	
+	private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+	
+	private LocalDate debut = LocalDate.parse(EDF.START_DATE, formatter);
+	
+	public SolutionTexte(String fichierEquipes, String fichierFormateurs, String fichierSalles) throws IOException {
+		writerEquipes = new PrintWriter(fichierEquipes, "UTF-8");
+		writerFormateurs = new PrintWriter(fichierFormateurs, "UTF-8");
+		writerSalles = new PrintWriter(fichierSalles, "UTF-8");
+	}
+	
+	@Override
+	public void ecrire(int jourDebut, int nbJours, int[][] equipes, int[][] formateurs, int[][] salles, int[][][] semaines) {
+		// Une seule mise en forme par jour
+		String[] libellesTraces = new String[nbJours * EDF.NB_TRACES_JOUR];
+		for (int j = 0; j < nbJours; j++) {
+			String date = debut.plusDays(jourDebut + j).format(formatter);
+			for (int t = 0; t < EDF.NB_TRACES_JOUR; t++) {
+				libellesTraces[j * EDF.NB_TRACES_JOUR + t] = date+" T"+(t+1);
+			}
+		}
+		
+		ecrire(writerFormateurs, "FORM", formateurs, libellesTraces);
+		
+		for (int i = 0; i < equipes.length; i++) {
+			for (int f = 0; f < semaines[i].length; f++) {
+				for (int k = 0; k < semaines[i][f].length; k++) {
+					if(semaines[i][f][k] > 0) writerEquipes.println("Equipe : "+i+"- Formation : "+(f+1)+" - Semaine : "+(jourDebut / 7 + k + 1)+" = "+semaines[i][f][k]+"  ");
+				}
+			}
+			ecrire(writerEquipes, "EQ", i, equipes[i], libellesTraces);
+		}
+		
+		ecrire(writerSalles, "SALLE", salles, libellesTraces);
+	}
+	
+	private void ecrire(PrintWriter writer, String prefixe, int[][] planning, String[] libellesTraces) {
+		for (int i = 0; i < planning.length; i++) {
+			ecrire(writer, prefixe, i, planning[i], libellesTraces);
+		}
+	}
+	
+	/**
+	 * Les sessions de la ligne i d'un planning : les traces qui ont un cours
+	 */
+	private void ecrire(PrintWriter writer, String prefixe, int i, int[] ligne, String[] libellesTraces) {
+		for (int j = 0; j < ligne.length; j++) {
+			if(ligne[j] > EDF.PAS_DE_COURS) writer.println(prefixe+i+" "+libellesTraces[j]+" = "+ligne[j]+"  ");
+		}
+	}
+	
+	@Override
+	public void fermer() {
+		writerEquipes.close();
+		writerFormateurs.close();
+		writerSalles.close();
+	}
+
+}
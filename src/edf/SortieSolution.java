@@ -0,0 +1,26 @@
+package edf;
+
+import java.io.IOException;
+
+/**
+ * La destination d'une solution, écrite bloc par bloc : un bloc est une suite de jours consécutifs
+ * de l'horizon, toute la fenêtre résolue ou sa partie fixée dans l'horizon glissant.
+ * Les plannings sont donnés trace par trace comme les variables du modèle :
+ * NO_DISPONIBLE, PAS_DE_COURS ou le numéro de la formation.
+ */
+public interface SortieSolution {
+	
+	/**
+	 * Écrit un bloc de la solution
+	 * @param jourDebut le premier jour du bloc, compté depuis START_DATE
+	 * @param nbJours le nombre de jours du bloc
+	 * @param equipes le planning de chaque équipe, nbJours * NB_TRACES_JOUR traces
+	 * @param formateurs le planning de chaque formateur
+	 * @param salles le planning de chaque salle
+	 * @param semaines pour chaque équipe et chaque formation, 1 pour chaque semaine complète du bloc où l'équipe la suit
+	 */
+	void ecrire(int jourDebut, int nbJours, int[][] equipes, int[][] formateurs, int[][] salles, int[][][] semaines) throws IOException;
+	
+	void fermer() throws IOException;
+
+}
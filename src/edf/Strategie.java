@@ -0,0 +1,26 @@
+package edf;
+
+/**
+ * Les stratégies de recherche disponibles pour la résolution du planning
+ */
+public enum Strategie {
+
+	/** Recherche basée sur l'activité des variables (stratégie historique de go()) */
+	ACTIVITE,
+
+	/** Recherche dom/wdeg : plus petit domaine pondéré par les échecs des contraintes */
+	DOM_WDEG,
+
+	/** Ordre statique des variables de décision, plus petite valeur d'abord */
+	ORDRE_STATIQUE,
+
+	/** Choix aléatoire des variables et des valeurs */
+	ALEATOIRE,
+	
+	/** 
+	 * Recherche par phases : les semaines des formations, puis les traces des équipes 
+	 * semaine par semaine, puis les formateurs (charge équilibrée) et les salles
+	 */
+	STRUCTUREE;
+
+}
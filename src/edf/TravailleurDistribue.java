@@ -0,0 +1,147 @@
+package edf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.SearchState;
+
+/**
+ * Un travailleur de la recherche distribuée (voir RechercheDistribuee) : il demande des sous-problèmes au coordinateur
+ * et les résout un par un, chacun dans un nouveau modèle de tout l'horizon, jusqu'au message FIN.
+ * Un fil lit les messages du coordinateur pendant la résolution : ANNULER arrête la recherche en cours.
+ */
+public class TravailleurDistribue {
+	
+	/** Le message FIN dans la file des sous-problèmes */
+	private static final int[][] FIN = new int[0][];
+	
+	private Socket socket;
+	
+	private DataInputStream entree;
+	
+	private DataOutputStream sortie;
+	
+	private BlockingQueue<int[][]> sousProblemes = new LinkedBlockingQueue<int[][]>();
+	
+	/** Vrai quand un autre travailleur a trouvé une solution */
+	private volatile boolean annule;
+	
+	/** Le temps imparti à chaque sous-problème, en secondes */
+	private int tempsMax;
+	
+	private Strategie strategie;
+	
+	private long graine;
+	
+	private boolean symetries;
+	
+	public TravailleurDistribue(String hote, int port, int tempsMax, Strategie strategie, long graine, boolean symetries) throws IOException {
+		this.tempsMax = tempsMax;
+		this.strategie = strategie;
+		this.graine = graine;
+		this.symetries = symetries;
+		socket = new Socket(hote, port);
+		entree = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		sortie = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+	
+	public void go() throws Exception {
+		Thread lecteur = new Thread(this::lire, "Lecture coordinateur");
+		lecteur.setDaemon(true);
+		lecteur.start();
+		try {
+			int nbResolus = 0;
+			while(true) {
+				sortie.writeByte(RechercheDistribuee.DEMANDE);
+				sortie.flush();
+				int[][] choix = sousProblemes.take();
+				if(choix == FIN) {
+					break;
+				}
+				resoudre(choix);
+				nbResolus++;
+			}
+			System.out.println("Travailleur "+graine+" : "+nbResolus+" sous-problème(s) traité(s)");
+		} finally {
+			socket.close();
+		}
+	}
+	
+	/**
+	 * Résout un sous-problème et en rend compte au coordinateur, avec la solution s'il y en a une
+	 */
+	private void resoudre(int[][] choix) throws Exception {
+		EDF edf = new EDF();
+		for (int[] c : choix) {
+			edf.imposerPremiereSemaine(c[0], c[1], c[2]);
+		}
+		if(symetries) edf.casserSymetries();
+		edf.configurerRecherche(strategie, graine);
+		Solver solver = edf.getSolver();
+		solver.limitTime(tempsMax+"s");
+		solver.addStopCriterion(() -> annule);
+		
+		if(solver.solve()) {
+			sortie.writeByte(RechercheDistribuee.SOLUTION);
+			edf.ecrireSolution(new SortieConnexion(), edf.getNbJours());
+		} else if(solver.getSearchState() == SearchState.TERMINATED) {
+			sortie.writeByte(RechercheDistribuee.REFUTE);
+		} else {
+			sortie.writeByte(RechercheDistribuee.INTERROMPU);
+		}
+	}
+	
+	/**
+	 * Lit les messages du coordinateur jusqu'à la fin de la connexion
+	 */
+	private void lire() {
+		try {
+			while(true) {
+				byte message = entree.readByte();
+				if(message == RechercheDistribuee.ANNULER) {
+					annule = true;
+				} else if(message == RechercheDistribuee.FIN) {
+					sousProblemes.add(FIN);
+					return;
+				} else if(message == RechercheDistribuee.SOUS_PROBLEME) {
+					int[][] choix = new int[entree.readInt()][3];
+					for (int[] c : choix) {
+						c[0] = entree.readInt();
+						c[1] = entree.readInt();
+						c[2] = entree.readInt();
+					}
+					sousProblemes.add(choix);
+				} else {
+					throw new IOException("Message inconnu : "+message);
+				}
+			}
+		} catch (IOException e) {
+			// Le coordinateur a fermé la connexion : la recherche en cours s'arrête
+			annule = true;
+			sousProblemes.add(FIN);
+		}
+	}
+	
+	/**
+	 * La solution est envoyée au coordinateur au lieu d'être écrite dans des fichiers
+	 */
+	private class SortieConnexion implements SortieSolution {
+		
+		@Override
+		public void ecrire(int jourDebut, int nbJours, int[][] equipes, int[][] formateurs, int[][] salles, int[][][] semaines) throws IOException {
+			RechercheDistribuee.ecrireBloc(sortie, jourDebut, nbJours, equipes, formateurs, salles, semaines);
+		}
+		
+		@Override
+		public void fermer() {
+		}
+	}
+
+}
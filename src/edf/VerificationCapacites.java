@@ -0,0 +1,245 @@
+package edf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Les conditions nécessaires de faisabilité vérifiées sur les données, avant de poser les contraintes :
+ * des bornes de capacité calculées en quelques millisecondes, qui rejettent une instance dont la recherche
+ * ne pourrait qu'échouer, parfois après très longtemps.
+ * - chaque équipe a assez de jours disponibles (DisposEquipes.csv) pour ses besoins (BesoinsFormations.csv),
+ * en respectant le nombre de traces par jour de chaque formation (FormationsInfos.csv) ;
+ * - dans la dernière fenêtre, où les besoins sont imposés, chaque formation tient dans ses semaines imposées ;
+ * - les formateurs hors congés (DisposFormateurs.csv) peuvent animer toutes les traces sans dépasser
+ * NB_MAX_TRAVAIL_FORMATEUR journées ni l'écart NB_MAX_DIF_ENTRE_FORMS ;
+ * - les salles adaptées à chaque formation (Salles-formations.csv) peuvent l'accueillir.
+ * Une vérification qui passe ne garantit pas qu'une solution existe.
+ */
+public class VerificationCapacites {
+	
+	/** Le nombre de jours ouvrés d'une semaine, les seuls suivis par les contraintes de semaines */
+	private static final int JOURS_OUVRES = 5;
+	
+	private EDF edf;
+	
+	/** Le nombre de traces restant à planifier de chaque formation pour chaque équipe, comme dans le modèle */
+	private int[][] traces;
+	
+	private int[] tracesParJour;
+	
+	private ArrayList<String> erreurs = new ArrayList<String>();
+	
+	public VerificationCapacites(EDF edf) {
+		this.edf = edf;
+		double[][] tracesRestantes = edf.getEtat().getTracesRestantes();
+		traces = new int[edf.getNbEquipes()][edf.getNbFormations()];
+		for (int i = 0; i < edf.getNbEquipes(); i++) {
+			for (int j = 0; j < edf.getNbFormations(); j++) {
+				traces[i][j] = (int) tracesRestantes[i][j];
+			}
+		}
+		tracesParJour = new int[edf.getNbFormations()];
+		for (int j = 0; j < edf.getNbFormations(); j++) {
+			tracesParJour[j] = (int) edf.getFormations()[j][2];
+		}
+	}
+	
+	/**
+	 * @throws InstanceInfaisable avec toutes les conditions non respectées, si au moins une ne l'est pas
+	 */
+	public void verifier() throws InstanceInfaisable {
+		verifierEquipes();
+		if(edf.isDerniereFenetre()) {
+			verifierSemaines();
+			if(edf.getFormateurs().length > 0) {
+				verifierFormateurs();
+			}
+			verifierSalles();
+		}
+		if(erreurs.isEmpty()) {
+			return;
+		}
+		StringBuilder message = new StringBuilder("Instance infaisable du jour "+edf.getJourDebut()+" au jour "
+				+(edf.getJourDebut() + edf.getNbJours())+", "+erreurs.size()+" condition(s) non respectée(s) :");
+		for (String erreur : erreurs) {
+			message.append("\n\t").append(erreur);
+		}
+		throw new InstanceInfaisable(message.toString());
+	}
+	
+	/**
+	 * Les besoins de chaque équipe tiennent dans ses jours disponibles jusqu'à la fin de l'horizon,
+	 * au total et formation par formation
+	 */
+	private void verifierEquipes() {
+		int[] joursDisponibles = edf.getJoursDisponibles();
+		for (int i = 0; i < edf.getNbEquipes(); i++) {
+			int total = 0;
+			for (int j = 0; j < edf.getNbFormations(); j++) {
+				total += traces[i][j];
+				if(traces[i][j] > tracesParJour[j] * joursDisponibles[i]) {
+					erreurs.add("équipe "+(i+1)+", formation F"+(j+1)+" : "+traces[i][j]+" traces à planifier, au plus "
+							+tracesParJour[j]+" par jour sur "+joursDisponibles[i]+" jours disponibles ("+EDF.FICHIER_DISPOS_EQUIPES+")");
+				}
+			}
+			if(total > EDF.NB_TRACES_JOUR * joursDisponibles[i]) {
+				erreurs.add("équipe "+(i+1)+" : "+total+" traces de formation à planifier pour "+joursDisponibles[i]
+						+" jours disponibles, soit "+(EDF.NB_TRACES_JOUR * joursDisponibles[i])+" traces ("+EDF.FICHIER_DISPOS_EQUIPES+")");
+			}
+		}
+	}
+	
+	/**
+	 * Chaque formation est suivie exactement sur ses semaines restantes, avec au moins une session
+	 * et au plus NB_MAX_TRACES_SEMAINE par semaine ; les jours hors des semaines complètes ne sont pas limités
+	 */
+	private void verifierSemaines() {
+		int[][] semainesRestantes = edf.getEtat().getSemainesRestantes();
+		boolean[][] disposEquipes = edf.getDisposEquipes();
+		int nbSemaines = edf.getNbJours() / 7;
+		for (int i = 0; i < edf.getNbEquipes(); i++) {
+			// Les jours ouvrés disponibles de chaque semaine complète, et les jours disponibles hors de ces semaines
+			int[] joursSemaines = new int[nbSemaines];
+			int joursHorsSemaines = 0;
+			for (int d = 0; d < edf.getNbJours(); d++) {
+				if(disposEquipes[i][d]) {
+					if(d / 7 < nbSemaines && d % 7 < JOURS_OUVRES) {
+						joursSemaines[d / 7]++;
+					} else {
+						joursHorsSemaines++;
+					}
+				}
+			}
+			for (int j = 0; j < edf.getNbFormations(); j++) {
+				int semaines = semainesRestantes[i][j];
+				if(semaines > traces[i][j]) {
+					erreurs.add("équipe "+(i+1)+", formation F"+(j+1)+" : "+semaines+" semaine(s) imposée(s) pour "+traces[i][j]+" trace(s)");
+					continue;
+				}
+				// Les semaines qui peuvent porter le plus de sessions
+				int[] capacites = new int[nbSemaines];
+				int semainesPossibles = 0;
+				for (int s = 0; s < nbSemaines; s++) {
+					capacites[s] = Math.min(EDF.NB_MAX_TRACES_SEMAINE, tracesParJour[j] * joursSemaines[s]);
+					if(capacites[s] > 0) semainesPossibles++;
+				}
+				if(semaines > semainesPossibles) {
+					erreurs.add("équipe "+(i+1)+", formation F"+(j+1)+" : "+semaines+" semaine(s) imposée(s), "+semainesPossibles
+							+" semaine(s) avec un jour ouvré disponible ("+EDF.FICHIER_DISPOS_EQUIPES+")");
+					continue;
+				}
+				Arrays.sort(capacites);
+				int capacite = tracesParJour[j] * joursHorsSemaines;
+				for (int s = nbSemaines - semaines; s < nbSemaines; s++) {
+					capacite += capacites[s];
+				}
+				if(traces[i][j] > capacite) {
+					erreurs.add("équipe "+(i+1)+", formation F"+(j+1)+" : "+traces[i][j]+" traces à planifier sur "+semaines
+							+" semaine(s) d'au plus "+EDF.NB_MAX_TRACES_SEMAINE+" sessions, au plus "+capacite+" possibles");
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Chaque trace de formation a un formateur : les traces à animer tiennent dans les traces où des équipes et
+	 * des formateurs sont disponibles, et dans les journées que chaque formateur peut encore travailler
+	 */
+	private void verifierFormateurs() {
+		boolean[][] conges = edf.getCongesFormateurs();
+		boolean[][] disposEquipes = edf.getDisposEquipes();
+		int[] journeesDejaTravaillees = edf.getEtat().getJourneesTravaillees();
+		int nbJours = edf.getNbJours();
+		int aAnimer = 0;
+		for (int[] tracesEquipe : traces) {
+			for (int t : tracesEquipe) {
+				aAnimer += t;
+			}
+		}
+		
+		// Par trace, au plus une session par équipe disponible, par formateur hors congés et par salle utile
+		int sessions = 0;
+		for (int d = 0; d < nbJours; d++) {
+			int equipesDisponibles = 0;
+			for (int i = 0; i < edf.getNbEquipes(); i++) {
+				if(disposEquipes[i][d]) equipesDisponibles++;
+			}
+			for (int t = d * EDF.NB_TRACES_JOUR; t < (d + 1) * EDF.NB_TRACES_JOUR; t++) {
+				int formateursDisponibles = 0;
+				for (int k = 0; k < edf.getNbFormateurs(); k++) {
+					if(!conges[k][t]) formateursDisponibles++;
+				}
+				sessions += Math.min(equipesDisponibles, Math.min(formateursDisponibles, edf.getSallesUtiles()));
+			}
+		}
+		if(aAnimer > sessions) {
+			erreurs.add(aAnimer+" traces de formation à planifier, au plus "+sessions+" sessions possibles "
+					+"(par trace, le minimum des équipes disponibles, des formateurs hors congés et des salles adaptées à une formation)");
+		}
+		
+		// Les journées de chaque formateur : au plus NB_MAX_TRAVAIL_FORMATEUR, et à moins de NB_MAX_DIF_ENTRE_FORMS
+		// de celles du formateur qui peut en travailler le moins
+		int[] maxJournees = new int[edf.getNbFormateurs()];
+		int minMax = Integer.MAX_VALUE;
+		for (int k = 0; k < edf.getNbFormateurs(); k++) {
+			int joursLibres = 0;
+			for (int d = 0; d < nbJours; d++) {
+				if(!conges[k][d * EDF.NB_TRACES_JOUR]) joursLibres++;
+			}
+			maxJournees[k] = Math.min(EDF.NB_MAX_TRAVAIL_FORMATEUR, journeesDejaTravaillees[k] + joursLibres);
+			minMax = Math.min(minMax, maxJournees[k]);
+		}
+		int capacite = 0;
+		for (int k = 0; k < edf.getNbFormateurs(); k++) {
+			int max = Math.min(maxJournees[k], minMax + EDF.NB_MAX_DIF_ENTRE_FORMS - 1);
+			if(journeesDejaTravaillees[k] > max) {
+				erreurs.add("formateur "+(k+1)+" : "+journeesDejaTravaillees[k]+" journées déjà travaillées, au plus "+max
+						+" (maximum "+EDF.NB_MAX_TRAVAIL_FORMATEUR+", écart de moins de "+EDF.NB_MAX_DIF_ENTRE_FORMS+" avec un formateur qui ne peut travailler que "+minMax+" journées)");
+			} else {
+				capacite += (max - journeesDejaTravaillees[k]) * EDF.NB_TRACES_JOUR;
+			}
+		}
+		if(aAnimer > capacite) {
+			erreurs.add(aAnimer+" traces de formation à animer, au plus "+capacite+" traces pour les formateurs "
+					+"(au plus "+EDF.NB_MAX_TRAVAIL_FORMATEUR+" journées, hors congés de "+EDF.FICHIER_DISPOS_FORMATEURS
+					+", écart de moins de "+EDF.NB_MAX_DIF_ENTRE_FORMS+" journées entre formateurs)");
+		}
+	}
+	
+	/**
+	 * Chaque session d'une formation occupe une salle adaptée : par jour, au plus NB_TRACES_JOUR sessions par salle
+	 * adaptée, et au plus le nombre de traces par jour de la formation par équipe disponible
+	 */
+	private void verifierSalles() {
+		boolean[][] disposEquipes = edf.getDisposEquipes();
+		int[] sallesAdaptees = edf.getSallesAdaptees();
+		int[] equipesDisponibles = new int[edf.getNbJours()];
+		for (int d = 0; d < edf.getNbJours(); d++) {
+			for (int i = 0; i < edf.getNbEquipes(); i++) {
+				if(disposEquipes[i][d]) equipesDisponibles[d]++;
+			}
+		}
+		for (int j = 0; j < edf.getNbFormations(); j++) {
+			int aPlanifier = 0;
+			for (int i = 0; i < edf.getNbEquipes(); i++) {
+				aPlanifier += traces[i][j];
+			}
+			if(aPlanifier == 0) {
+				continue;
+			}
+			if(sallesAdaptees[j] == 0) {
+				erreurs.add("formation F"+(j+1)+" : "+aPlanifier+" traces à planifier, aucune salle adaptée ("+EDF.FICHIER_SALLES_FORMATIONS+")");
+				continue;
+			}
+			int capacite = 0;
+			for (int d = 0; d < edf.getNbJours(); d++) {
+				capacite += Math.min(EDF.NB_TRACES_JOUR * sallesAdaptees[j], tracesParJour[j] * equipesDisponibles[d]);
+			}
+			if(aPlanifier > capacite) {
+				erreurs.add("formation F"+(j+1)+" : "+aPlanifier+" traces à planifier, au plus "+capacite+" sessions possibles dans les "
+						+sallesAdaptees[j]+" salle(s) adaptée(s) ("+EDF.FICHIER_SALLES_FORMATIONS+")");
+			}
+		}
+	}
+
+}
@@ -0,0 +1,174 @@
+package edf;
+
+import java.util.Random;
+
+import org.chocosolver.solver.Solution;
+import org.chocosolver.solver.search.loop.lns.neighbors.INeighbor;
+import org.chocosolver.solver.search.strategy.assignments.DecisionOperatorFactory;
+import org.chocosolver.solver.search.strategy.decision.DecisionPath;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * Un voisinage de la recherche à grand voisinage (LNS) sur les plannings : une partie des
+ * équipes, des semaines ou des formateurs est libérée, tout le reste est refixé à la
+ * dernière solution. Les salles sont toujours libérées, elles ne font que suivre les sessions.
+ * La taille du voisinage augmente chaque fois qu'il ne permet plus d'améliorer la solution.
+ */
+public class VoisinagePlanning implements INeighbor {
+	
+	public enum Type {
+		
+		/** Quelques équipes sont libérées, avec tous les formateurs */
+		EQUIPES,
+		
+		/** Quelques semaines consécutives sont libérées pour tous les plannings */
+		SEMAINES,
+		
+		/** Quelques formateurs sont libérés, avec les équipes des jours où ils travaillaient */
+		FORMATEURS;
+	}
+	
+	private Type type;
+	
+	private IntVar[][] equipes;
+	
+	private IntVar[][] formateurs;
+	
+	/** Les valeurs de la dernière solution, dans le même ordre que les plannings */
+	private int[][] valeursEquipes;
+	
+	private int[][] valeursFormateurs;
+	
+	/** Le nombre d'équipes, de semaines ou de formateurs libérés */
+	private int taille;
+	
+	private int tailleMax;
+	
+	private Random aleatoire;
+	
+	public VoisinagePlanning(Type type, EDF edf, int taille, long graine) {
+		this.type = type;
+		this.equipes = edf.getEquipes();
+		this.formateurs = edf.getFormateurs();
+		this.valeursEquipes = new int[equipes.length][equipes[0].length];
+		this.valeursFormateurs = new int[formateurs.length][equipes[0].length];
+		this.taille = taille;
+		this.aleatoire = new Random(graine);
+		
+		switch (type) {
+		case EQUIPES:
+			tailleMax = equipes.length;
+			break;
+		case SEMAINES:
+			tailleMax = Math.max(1, equipes[0].length / (EDF.NB_TRACES_JOUR * 7));
+			break;
+		case FORMATEURS:
+			tailleMax = formateurs.length;
+			break;
+		}
+	}
+	
+	@Override
+	public void init() {
+	}
+	
+	@Override
+	public void recordSolution() {
+		for (int i = 0; i < equipes.length; i++) {
+			for (int j = 0; j < equipes[i].length; j++) {
+				valeursEquipes[i][j] = equipes[i][j].getValue();
+			}
+		}
+		for (int i = 0; i < formateurs.length; i++) {
+			for (int j = 0; j < formateurs[i].length; j++) {
+				valeursFormateurs[i][j] = formateurs[i][j].getValue();
+			}
+		}
+	}
+	
+	@Override
+	public void loadFromSolution(Solution solution) {
+		for (int i = 0; i < equipes.length; i++) {
+			for (int j = 0; j < equipes[i].length; j++) {
+				valeursEquipes[i][j] = solution.getIntVal(equipes[i][j]);
+			}
+		}
+		for (int i = 0; i < formateurs.length; i++) {
+			for (int j = 0; j < formateurs[i].length; j++) {
+				valeursFormateurs[i][j] = solution.getIntVal(formateurs[i][j]);
+			}
+		}
+	}
+	
+	@Override
+	public void fixSomeVariables(DecisionPath decisionPath) {
+		int nbTraces = equipes[0].length;
+		boolean[] equipesLibres = new boolean[equipes.length];
+		boolean[] formateursLibres = new boolean[formateurs.length];
+		boolean[] tracesLibres = new boolean[nbTraces];
+		
+		switch (type) {
+		case EQUIPES:
+			for (int n = 0; n < taille; n++) {
+				equipesLibres[aleatoire.nextInt(equipes.length)] = true;
+			}
+			for (int k = 0; k < formateurs.length; k++) {
+				formateursLibres[k] = true;
+			}
+			break;
+		case SEMAINES:
+			int tracesSemaine = EDF.NB_TRACES_JOUR * 7;
+			int premiere = aleatoire.nextInt(Math.max(1, tailleMax - taille + 1)) * tracesSemaine;
+			for (int j = premiere; j < Math.min(nbTraces, premiere + taille * tracesSemaine); j++) {
+				tracesLibres[j] = true;
+			}
+			break;
+		case FORMATEURS:
+			for (int n = 0; n < taille; n++) {
+				int k = aleatoire.nextInt(formateurs.length);
+				formateursLibres[k] = true;
+				// Les journées où le formateur travaillait sont libérées pour les équipes
+				for (int j = 0; j < nbTraces; j++) {
+					if(valeursFormateurs[k][j] > EDF.PAS_DE_COURS) {
+						int premiereDuJour = j - j % EDF.NB_TRACES_JOUR;
+						for (int t = premiereDuJour; t < premiereDuJour + EDF.NB_TRACES_JOUR; t++) {
+							tracesLibres[t] = true;
+						}
+					}
+				}
+			}
+			break;
+		}
+		
+		for (int j = 0; j < nbTraces; j++) {
+			if(tracesLibres[j]) continue;
+			for (int i = 0; i < equipes.length; i++) {
+				if(!equipesLibres[i]) {
+					imposer(decisionPath, equipes[i][j], valeursEquipes[i][j]);
+				}
+			}
+			for (int k = 0; k < formateurs.length; k++) {
+				if(!formateursLibres[k]) {
+					imposer(decisionPath, formateurs[k][j], valeursFormateurs[k][j]);
+				}
+			}
+		}
+	}
+	
+	private void imposer(DecisionPath decisionPath, IntVar var, int valeur) {
+		if(!var.isInstantiated()) {
+			decisionPath.pushDecision(decisionPath.makeIntDecision(var, DecisionOperatorFactory.makeIntEq(), valeur).setRefutable(false));
+		}
+	}
+	
+	@Override
+	public void restrictLess() {
+		taille = Math.min(taille + 1, tailleMax);
+	}
+	
+	@Override
+	public boolean isSearchComplete() {
+		return false;
+	}
+
+}